@@ -0,0 +1,28 @@
+package com.skyline.csg.jmh;
+
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates are
+ * reported alongside throughput and latency percentiles. Takes the usual JMH
+ * command line options, e.g. to run only the boolean operations on small
+ * meshes:
+ *
+ * <pre>
+ * java -jar skyline-csg-jmh/target/benchmarks.jar BooleanBenchmark -p size=100,1000
+ * </pre>
+ *
+ * @author philippd
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,68 @@
+package com.skyline.csg.jmh;
+
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+
+/**
+ * {@link CSG#union(CSG)}, {@link CSG#subtract(CSG)} and
+ * {@link CSG#intersect(CSG)} on two overlapping spheres of `size / 2` polygons
+ * each. The compiled variant subtracts a {@link CompiledCSG} of the second
+ * sphere, whose tree is built once, in the setup. `robust` switches between
+ * the {@link CSG#EPSILON} predicates and {@link CSGOptions#setRobust(boolean)}.
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BooleanBenchmark {
+
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	@Param({ "false", "true" })
+	public boolean robust;
+
+	private CSG a, b;
+	private CompiledCSG compiled;
+	private CSGOptions options;
+
+	@Setup
+	public void setup() {
+		a = Meshes.sphere(size / 2, new Vector3d());
+		b = Meshes.sphere(size / 2, new Vector3d(0.5, 0.25, 0.125));
+		options = new CSGOptions();
+		options.setRobust(robust);
+		compiled = b.compile(options);
+		// build the tree now, not in the first measured call.
+		a.subtract(compiled);
+	}
+
+	@Benchmark
+	public CSG union() {
+		return a.union(b, options);
+	}
+
+	@Benchmark
+	public CSG subtract() {
+		return a.subtract(b, options);
+	}
+
+	@Benchmark
+	public CSG subtractCompiled() {
+		return a.subtract(compiled);
+	}
+
+	@Benchmark
+	public CSG intersect() {
+		return a.intersect(b, options);
+	}
+}
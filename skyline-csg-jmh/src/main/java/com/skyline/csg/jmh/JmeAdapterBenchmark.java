@@ -0,0 +1,48 @@
+package com.skyline.csg.jmh;
+
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jme3.scene.*;
+import com.skyline.csg.*;
+import com.skyline.csg.jme3.*;
+
+/**
+ * Converting a sphere of `size` polygons to a jME3 {@link Mesh}
+ * ({@link JmeAdapter#fromCSG(CSG)}) and back ({@link JmeAdapter#toCSG(Mesh)}).
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JmeAdapterBenchmark {
+
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private CSG csg;
+	private Mesh mesh;
+
+	@Setup
+	public void setup() {
+		csg = Meshes.sphere(size, new Vector3d());
+		mesh = JmeAdapter.fromCSG(csg);
+	}
+
+	@Benchmark
+	public Mesh fromCSG() {
+		return JmeAdapter.fromCSG(csg);
+	}
+
+	@Benchmark
+	public CSG toCSG() {
+		return JmeAdapter.toCSG(mesh);
+	}
+}
@@ -0,0 +1,52 @@
+package com.skyline.csg.jmh;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * Test meshes of a given size for the benchmarks.
+ *
+ * @author philippd
+ */
+final class Meshes {
+
+	private Meshes() {
+	}
+
+	/**
+	 * A UV sphere of radius 1 around `center`, made of about `polygons` quads
+	 * and triangles (twice as many slices as stacks).
+	 */
+	static CSG sphere(int polygons, Vector3d center) {
+		int stacks = Math.max(2, (int) Math.round(Math.sqrt(polygons / 2.0)));
+		int slices = stacks * 2;
+		List<Polygon> retval = new ArrayList<Polygon>(stacks * slices);
+		for (int i = 0; i < slices; i++) {
+			for (int j = 0; j < stacks; j++) {
+				List<Vertex> vertices = new ArrayList<Vertex>(4);
+				vertices.add(vertex(center, i / (double) slices, j / (double) stacks));
+				if (j > 0) {
+					vertices.add(vertex(center, (i + 1) / (double) slices, j / (double) stacks));
+				}
+				if (j < stacks - 1) {
+					vertices.add(vertex(center, (i + 1) / (double) slices, (j + 1) / (double) stacks));
+				}
+				vertices.add(vertex(center, i / (double) slices, (j + 1) / (double) stacks));
+				retval.add(new Polygon(vertices));
+			}
+		}
+		return CSG.fromPolygons(retval);
+	}
+
+	private static Vertex vertex(Vector3d center, double theta, double phi) {
+		theta *= Math.PI * 2;
+		phi *= Math.PI;
+		Vector3d normal = new Vector3d(Math.cos(theta) * Math.sin(phi), Math.cos(phi), Math.sin(theta) * Math.sin(phi));
+		Vector3d pos = new Vector3d(normal);
+		pos.add(center);
+		return new Vertex(pos, normal, new TexCoord2f((float) theta, (float) phi));
+	}
+}
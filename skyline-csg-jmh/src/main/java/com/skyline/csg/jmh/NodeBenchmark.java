@@ -0,0 +1,43 @@
+package com.skyline.csg.jmh;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+
+/**
+ * Building a BSP tree ({@link Node#build(List)}) out of a sphere of `size`
+ * polygons.
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodeBenchmark {
+
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private List<Polygon> polygons;
+
+	@Setup
+	public void setup() {
+		// building doesn't modify the polygons, so they can be reused.
+		polygons = Meshes.sphere(size, new Vector3d()).getPolygons();
+	}
+
+	@Benchmark
+	public Node build() {
+		Node node = new Node();
+		node.build(polygons);
+		return node;
+	}
+}
@@ -0,0 +1,77 @@
+package com.skyline.csg.jmh;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+import com.skyline.csg.geom.*;
+
+/**
+ * Generating each of the {@link com.skyline.csg.geom} primitives. The
+ * tessellated ones are sized to come out at about `size` polygons (the
+ * sphere's size is rounded to the nearest level of detail); the others have a
+ * fixed polygon count.
+ *
+ * @author philippd
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimitiveBenchmark {
+
+	@State(Scope.Thread)
+	public static class Tessellation {
+
+		@Param({ "100", "1000", "10000", "100000", "1000000" })
+		public int size;
+
+		int coneSlices, cylinderSlices, sphereLod, torusSamples;
+
+		@Setup
+		public void setup() {
+			coneSlices = Math.max(3, size / 2);
+			cylinderSlices = Math.max(3, size / 3);
+			// 20 * 4^lod triangles.
+			sphereLod = (int) Math.max(0, Math.round(Math.log(size / 20.0) / Math.log(4)));
+			torusSamples = Math.max(3, (int) Math.sqrt(size / 2.0));
+		}
+	}
+
+	@Benchmark
+	public CSG box() {
+		return new Box(1, 2, 3);
+	}
+
+	@Benchmark
+	public CSG icosahedron() {
+		return new Icosahedron(1);
+	}
+
+	@Benchmark
+	public CSG quad() {
+		return new Quad(1, 2);
+	}
+
+	@Benchmark
+	public CSG cone(Tessellation t) {
+		return new Cone(1, 2, t.coneSlices);
+	}
+
+	@Benchmark
+	public CSG cylinder(Tessellation t) {
+		return new Cylinder(1, 2, t.cylinderSlices);
+	}
+
+	@Benchmark
+	public CSG sphere(Tessellation t) {
+		return new Sphere(1, t.sphereLod);
+	}
+
+	@Benchmark
+	public CSG torus(Tessellation t) {
+		return new Torus(t.torusSamples, t.torusSamples, 0.5, 1);
+	}
+}
@@ -0,0 +1,64 @@
+package com.skyline.csg.jmh;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+
+/**
+ * {@link CompiledCSG#contains(double[], boolean[])} and
+ * {@link CompiledCSG#raycast(double[], double[], double[])} on a batch of 1000
+ * random points and rays, against the union of two overlapping spheres of
+ * `size / 2` polygons each, compiled with {@link SplitStrategy#SAMPLED}.
+ * Scores are per batch.
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+	private static final int BATCH = 1000;
+
+	@Param({ "100", "1000", "10000" })
+	public int size;
+
+	private CompiledCSG solid;
+	private final double[] points = new double[3 * BATCH], directions = new double[3 * BATCH];
+	private final boolean[] inside = new boolean[BATCH];
+	private final double[] t = new double[BATCH];
+
+	@Setup
+	public void setup() {
+		CSG a = Meshes.sphere(size / 2, new Vector3d());
+		CSG b = Meshes.sphere(size / 2, new Vector3d(0.5, 0.25, 0.125));
+		solid = a.union(b).compile(new CSGOptions(SplitStrategy.SAMPLED));
+		Random random = new Random(42);
+		for (int i = 0; i < points.length; i++) {
+			points[i] = random.nextDouble() * 3 - 1.5;
+			directions[i] = random.nextGaussian();
+		}
+		// build the tree now, not in the first measured call.
+		solid.contains(0, 0, 0);
+	}
+
+	@Benchmark
+	public boolean[] contains() {
+		solid.contains(points, inside);
+		return inside;
+	}
+
+	@Benchmark
+	public double[] raycast() {
+		solid.raycast(points, directions, t);
+		return t;
+	}
+}
@@ -0,0 +1,37 @@
+package com.skyline.csg.jmh;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+import com.skyline.csg.geom.*;
+
+/**
+ * Generating a sphere of 20 * 4^lod triangles with {@link IcoSphere}, against
+ * the recursive subdivision {@link Sphere} used before it
+ * ({@link LegacySphere}).
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SphereBenchmark {
+
+	@Param({ "0", "1", "2", "3", "4", "5", "6", "7" })
+	public int lod;
+
+	@Benchmark
+	public CSG icoSphere() {
+		return new IcoSphere(1, lod);
+	}
+
+	@Benchmark
+	public CSG legacy() {
+		return new LegacySphere(1, lod);
+	}
+}
@@ -0,0 +1,58 @@
+package com.skyline.csg.jmh;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+
+/**
+ * One call to {@link Plane#splitPolygon(Polygon, List, List, List, List)}, for
+ * a quad that lands entirely in front of the plane, and for one that gets
+ * split. The bytes allocated per call are the GC profiler's
+ * gc.alloc.rate.norm (see {@link BenchmarkRunner}).
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitAllocationBenchmark {
+
+	@Param({ "front", "spanning" })
+	public String polygon;
+
+	private Plane plane;
+	private Polygon quad;
+	private final List<Polygon> front = new ArrayList<Polygon>(), back = new ArrayList<Polygon>();
+
+	@Setup
+	public void setup() {
+		plane = new Plane(new Vector3d(1, 0, 0), 0);
+		quad = quad(polygon.equals("front") ? 1 : -0.5);
+	}
+
+	@Benchmark
+	public int split() {
+		front.clear();
+		back.clear();
+		plane.splitPolygon(quad, front, back, front, back);
+		return front.size() + back.size();
+	}
+
+	/**
+	 * A unit square in the z=0 plane, starting at x.
+	 */
+	private static Polygon quad(double x) {
+		Vector3d normal = new Vector3d(0, 0, 1);
+		TexCoord2f tex = new TexCoord2f();
+		return new Polygon(new Vertex(new Vector3d(x, 0, 0), normal, tex), new Vertex(new Vector3d(x + 1, 0, 0), normal, tex),
+				new Vertex(new Vector3d(x + 1, 1, 0), normal, tex), new Vertex(new Vector3d(x, 1, 0), normal, tex));
+	}
+}
@@ -0,0 +1,57 @@
+package com.skyline.csg.jmh;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+
+/**
+ * {@link Plane#splitPolygon(Polygon, List, List, List, List)} over every
+ * polygon of a sphere of `size` polygons, against a plane that cuts the sphere
+ * roughly in half. Most polygons land on one side; a ring of them is split.
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitPolygonBenchmark {
+
+	@Param({ "100", "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private List<Polygon> polygons;
+	private Plane plane;
+	private List<Polygon> coplanarFront, coplanarBack, front, back;
+
+	@Setup
+	public void setup() {
+		polygons = Meshes.sphere(size, new Vector3d()).getPolygons();
+		Vector3d normal = new Vector3d(1, 0.1, 0.05);
+		normal.normalize();
+		plane = new Plane(normal, 0.01);
+		coplanarFront = new ArrayList<Polygon>();
+		coplanarBack = new ArrayList<Polygon>();
+		front = new ArrayList<Polygon>();
+		back = new ArrayList<Polygon>();
+	}
+
+	@Benchmark
+	public int splitAll() {
+		coplanarFront.clear();
+		coplanarBack.clear();
+		front.clear();
+		back.clear();
+		for (int i = 0; i < polygons.size(); i++) {
+			plane.splitPolygon(polygons.get(i), coplanarFront, coplanarBack, front, back);
+		}
+		return front.size() + back.size();
+	}
+}
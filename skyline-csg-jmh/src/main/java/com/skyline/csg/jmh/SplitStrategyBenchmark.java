@@ -0,0 +1,125 @@
+package com.skyline.csg.jmh;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.skyline.csg.*;
+import com.skyline.csg.geom.*;
+
+/**
+ * Each {@link SplitStrategy} building a BSP tree out of a `mesh`, and
+ * subtracting a cylinder from it. The shape of each tree (depth, node count
+ * and the fragments made by splitting) is reported next to the build times
+ * (see {@link TreeShape}), since it explains most of the difference in cost.
+ *
+ * @author philippd
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitStrategyBenchmark {
+
+	@Param({ "FIRST", "SAMPLED", "AXIS_ALIGNED" })
+	public String strategy;
+
+	@Param({ "sphere", "cylinder", "building", "cityBlock" })
+	public String mesh;
+
+	private CSGOptions options;
+	private CSG solid, cutter;
+	private List<Polygon> polygons;
+
+	@Setup
+	public void setup() {
+		options = new CSGOptions(strategy(strategy));
+		if (mesh.equals("sphere")) {
+			solid = new Sphere(1, 3);
+		} else if (mesh.equals("cylinder")) {
+			solid = new Cylinder(0.5, 2, 64);
+		} else if (mesh.equals("building")) {
+			solid = new Box(4, 12, 4).union(new Box(2, 16, 2)).subtract(new Cylinder(1.5, 20, 32));
+		} else {
+			solid = cityBlock(4);
+		}
+		cutter = new Cylinder(0.3, 40, 32).translate(0.25, 0, 0.25);
+		// building doesn't modify the polygons, so they can be reused.
+		polygons = solid.getPolygons();
+	}
+
+	/**
+	 * The shape of the tree built by {@link SplitStrategyBenchmark#build}, as
+	 * secondary results. Measured once per trial, outside the timed code. JMH
+	 * zeroes the counters before each iteration, so the benchmark sets them
+	 * again on every call.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class TreeShape {
+		public long depth;
+		public long nodes;
+		public long fragments;
+
+		private long measuredDepth, measuredNodes, measuredFragments;
+
+		@Setup
+		public void measure(SplitStrategyBenchmark benchmark) {
+			Node node = benchmark.newTree();
+			measuredDepth = node.depth();
+			measuredNodes = node.nodeCount();
+			measuredFragments = node.allPolygons().size() - benchmark.polygons.size();
+		}
+
+		void report() {
+			depth = measuredDepth;
+			nodes = measuredNodes;
+			fragments = measuredFragments;
+		}
+	}
+
+	@Benchmark
+	public Node build(TreeShape shape) {
+		shape.report();
+		return newTree();
+	}
+
+	private Node newTree() {
+		return new Node(new ArrayList<Polygon>(polygons), options);
+	}
+
+	@Benchmark
+	public CSG subtract() {
+		return solid.subtract(cutter, options);
+	}
+
+	private static SplitStrategy strategy(String name) {
+		if (name.equals("FIRST")) {
+			return SplitStrategy.FIRST;
+		} else if (name.equals("SAMPLED")) {
+			return SplitStrategy.SAMPLED;
+		}
+		return SplitStrategy.AXIS_ALIGNED;
+	}
+
+	/**
+	 * A grid of overlapping boxes of varying height, unioned together. Lots of
+	 * coplanar, axis-aligned faces, like building meshes.
+	 */
+	private static CSG cityBlock(int size) {
+		CSG block = null;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				double height = 2 + (i * 7 + j * 3) % 5;
+				CSG box = new Box(1.2, height, 1.2, new Vector3d(i, height / 2, j));
+				block = block == null ? box : block.union(box);
+			}
+		}
+		return block;
+	}
+}
@@ -0,0 +1,159 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+/**
+ * An immutable axis-aligned bounding box. A box with no points in it is empty
+ * (min is +infinity, max is -infinity), and doesn't intersect anything.
+ *
+ * @author philippd
+ */
+public class BoundingBox {
+
+	public static final BoundingBox EMPTY = new BoundingBox(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY);
+
+	final double minX, minY, minZ, maxX, maxY, maxZ;
+
+	public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+
+	/**
+	 * @param polygons
+	 * @return the smallest box containing every vertex of every polygon.
+	 */
+	public static BoundingBox of(List<Polygon> polygons) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (Polygon p : polygons) {
+			for (Vertex v : p.vertices) {
+				Vector3d pos = v.pos;
+				minX = Math.min(minX, pos.x);
+				minY = Math.min(minY, pos.y);
+				minZ = Math.min(minZ, pos.z);
+				maxX = Math.max(maxX, pos.x);
+				maxY = Math.max(maxY, pos.y);
+				maxZ = Math.max(maxZ, pos.z);
+			}
+		}
+		return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	public boolean isEmpty() {
+		return minX > maxX || minY > maxY || minZ > maxZ;
+	}
+
+	/**
+	 * @param other
+	 * @param epsilon
+	 *            boxes closer than this count as touching.
+	 * @return true if the boxes overlap or touch.
+	 */
+	public boolean intersects(BoundingBox other, double epsilon) {
+		return !isEmpty() && !other.isEmpty()
+				&& minX <= other.maxX + epsilon && other.minX <= maxX + epsilon
+				&& minY <= other.maxY + epsilon && other.minY <= maxY + epsilon
+				&& minZ <= other.maxZ + epsilon && other.minZ <= maxZ + epsilon;
+	}
+
+	/**
+	 * @param polygon
+	 * @param epsilon
+	 * @return true if the bounds of `polygon` overlap or touch this box.
+	 */
+	public boolean intersects(Polygon polygon, double epsilon) {
+		double pMinX = Double.POSITIVE_INFINITY, pMinY = Double.POSITIVE_INFINITY, pMinZ = Double.POSITIVE_INFINITY;
+		double pMaxX = Double.NEGATIVE_INFINITY, pMaxY = Double.NEGATIVE_INFINITY, pMaxZ = Double.NEGATIVE_INFINITY;
+		for (Vertex v : polygon.vertices) {
+			Vector3d pos = v.pos;
+			pMinX = Math.min(pMinX, pos.x);
+			pMinY = Math.min(pMinY, pos.y);
+			pMinZ = Math.min(pMinZ, pos.z);
+			pMaxX = Math.max(pMaxX, pos.x);
+			pMaxY = Math.max(pMaxY, pos.y);
+			pMaxZ = Math.max(pMaxZ, pos.z);
+		}
+		return pMinX <= maxX + epsilon && minX <= pMaxX + epsilon
+				&& pMinY <= maxY + epsilon && minY <= pMaxY + epsilon
+				&& pMinZ <= maxZ + epsilon && minZ <= pMaxZ + epsilon;
+	}
+
+	/**
+	 * @param other
+	 * @return the region covered by both boxes. Empty if they don't overlap.
+	 */
+	public BoundingBox intersection(BoundingBox other) {
+		return new BoundingBox(Math.max(minX, other.minX), Math.max(minY, other.minY), Math.max(minZ, other.minZ),
+				Math.min(maxX, other.maxX), Math.min(maxY, other.maxY), Math.min(maxZ, other.maxZ));
+	}
+
+	/**
+	 * @param other
+	 * @return the smallest box containing both boxes.
+	 */
+	public BoundingBox union(BoundingBox other) {
+		return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+				Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+	}
+
+	/**
+	 * @param transform
+	 *            an affine transform.
+	 * @return the smallest axis-aligned box containing this box, transformed.
+	 */
+	public BoundingBox transform(Matrix4d transform) {
+		if (isEmpty()) {
+			return this;
+		}
+		double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		Point3d corner = new Point3d();
+		for (int i = 0; i < 8; i++) {
+			corner.set((i & 1) == 0 ? minX : maxX, (i & 2) == 0 ? minY : maxY, (i & 4) == 0 ? minZ : maxZ);
+			transform.transform(corner);
+			min[0] = Math.min(min[0], corner.x);
+			min[1] = Math.min(min[1], corner.y);
+			min[2] = Math.min(min[2], corner.z);
+			max[0] = Math.max(max[0], corner.x);
+			max[1] = Math.max(max[1], corner.y);
+			max[2] = Math.max(max[2], corner.z);
+		}
+		return new BoundingBox(min[0], min[1], min[2], max[0], max[1], max[2]);
+	}
+
+	/**
+	 * @param axis
+	 *            0, 1 or 2 for x, y or z.
+	 * @return the middle of the box along `axis`.
+	 */
+	double center(int axis) {
+		switch (axis) {
+		case 0:
+			return (minX + maxX) / 2;
+		case 1:
+			return (minY + maxY) / 2;
+		default:
+			return (minZ + maxZ) / 2;
+		}
+	}
+
+	public Vector3d getMin() {
+		return new Vector3d(minX, minY, minZ);
+	}
+
+	public Vector3d getMax() {
+		return new Vector3d(maxX, maxY, maxZ);
+	}
+
+	public String toString() {
+		return String.format("{\"min\": {\"x\": %.6f,\"y\": %.6f,\"z\": %.6f}, \"max\": {\"x\": %.6f,\"y\": %.6f,\"z\": %.6f}}", minX, minY, minZ, maxX, maxY, maxZ);
+	}
+}
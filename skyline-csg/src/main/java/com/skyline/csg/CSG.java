@@ -1,6 +1,7 @@
 package com.skyline.csg;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import javax.vecmath.*;
 
@@ -16,6 +17,20 @@ public class CSG {
 	static final double EPSILON = 1e-5;
 	public String name = "CSG:" + System.currentTimeMillis();
 
+	// cached bounds and mass properties. Replaced as a whole, so threads
+	// racing to compute them never see a mix of old and new.
+	private volatile Cached<BoundingBox> bounds;
+	private volatile Cached<MassProperties> massProperties;
+	// see snapshot().
+	private boolean immutable;
+
+	// transform not yet applied to `polygons`, or null. See
+	// transform(Matrix4d).
+	private volatile Matrix4d pending;
+
+	// see setTolerance(Tolerance).
+	private Tolerance tolerance;
+
 	public CSG union(CSG other, String name) {
 		CSG retval = this.union(other);
 		retval.name = name;
@@ -94,20 +109,165 @@ public class CSG {
 	 * @verified
 	 */
 	public CSG union(CSG other) {
-		if (this.polygons == null || this.polygons.size() == 0) {
+		return union(other, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link #union(CSG)}, with the provided options.
+	 * 
+	 * @param other
+	 * @param options
+	 * @return
+	 */
+	public CSG union(CSG other, CSGOptions options) {
+		if (this.getPolygons() == null || this.getPolygons().size() == 0) {
 			return other;
-		} else if (other.polygons == null || other.polygons.size() == 0) {
+		} else if (other.getPolygons() == null || other.getPolygons().size() == 0) {
 			return this;
 		}
-		Node a = new Node(this.clone().polygons);
-		Node b = new Node(other.clone().polygons);
+		options = withTolerance(options, other);
+		BoundingBox overlap = overlap(other, options);
+		if (overlap == null) {
+			// disjoint. Nothing to clip.
+			List<Polygon> polygons = new ArrayList<Polygon>(this.getPolygons().size() + other.getPolygons().size());
+			polygons.addAll(this.clone().getPolygons());
+			polygons.addAll(other.clone().getPolygons());
+			return result(polygons, options);
+		}
+		Node[] trees = trees(other, options);
+		Node a = trees[0];
+		Node b = trees[1];
+		// polygons outside the overlap are outside the other solid, so they
+		// survive a union as-is.
+		List<Polygon> outside = a.removePolygonsOutside(overlap);
+		outside.addAll(b.removePolygonsOutside(overlap));
 		a.clipTo(b);
 		b.clipTo(a);
 		b.invert();
 		b.clipTo(a);
 		b.invert();
 		a.build(b.allPolygons());
-		return CSG.fromPolygons(a.allPolygons());
+		List<Polygon> polygons = a.allPolygons();
+		polygons.addAll(outside);
+		return result(polygons, options);
+	}
+
+	/**
+	 * Return a new CSG solid representing space in any of `solids`. None of
+	 * them are modified.
+	 * 
+	 * Chaining unions re-clips the whole growing result at every step. Instead,
+	 * the solids are split in half along the longest axis of their spread,
+	 * over and over, and the halves are merged pairwise. Neighbours end up
+	 * merged together, so most merges are between small, nearby pieces, and
+	 * merges of groups that don't touch are just concatenations.
+	 * 
+	 * @param solids
+	 * @return the union of all of `solids`. Empty if there are none.
+	 */
+	public static CSG unionAll(Collection<? extends CSG> solids) {
+		return unionAll(solids, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link #unionAll(Collection)}, with the provided options. With a
+	 * pool in `options`, independent merges run in parallel.
+	 * 
+	 * @param solids
+	 * @param options
+	 * @return
+	 */
+	public static CSG unionAll(Collection<? extends CSG> solids, CSGOptions options) {
+		List<CSG> nonEmpty = new ArrayList<CSG>(solids.size());
+		for (CSG solid : solids) {
+			if (solid != null && solid.getPolygons() != null && solid.getPolygons().size() > 0) {
+				nonEmpty.add(solid);
+			}
+		}
+		if (nonEmpty.isEmpty()) {
+			return CSG.fromPolygons(new ArrayList<Polygon>());
+		}
+		if (options.isParallel(polygonCount(nonEmpty))) {
+			return options.invoke(new UnionAllTask(nonEmpty, options));
+		}
+		return unionTree(nonEmpty, options);
+	}
+
+	private static CSG unionTree(List<CSG> solids, CSGOptions options) {
+		if (solids.size() == 1) {
+			return solids.get(0);
+		}
+		int mid = sortSpatially(solids);
+		CSG a = unionTree(solids.subList(0, mid), options);
+		CSG b = unionTree(solids.subList(mid, solids.size()), options);
+		return a.union(b, options);
+	}
+
+	/**
+	 * Sort `solids` by the centers of their bounds, along the axis where the
+	 * centers are most spread out.
+	 * 
+	 * @return the index splitting the list into two spatially separate halves.
+	 */
+	private static int sortSpatially(List<CSG> solids) {
+		double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (CSG solid : solids) {
+			BoundingBox bounds = solid.getBounds();
+			for (int i = 0; i < 3; i++) {
+				min[i] = Math.min(min[i], bounds.center(i));
+				max[i] = Math.max(max[i], bounds.center(i));
+			}
+		}
+		int longest = 0;
+		for (int i = 1; i < 3; i++) {
+			if (max[i] - min[i] > max[longest] - min[longest]) {
+				longest = i;
+			}
+		}
+		final int axis = longest;
+		Collections.sort(solids, new Comparator<CSG>() {
+			public int compare(CSG a, CSG b) {
+				return Double.compare(a.getBounds().center(axis), b.getBounds().center(axis));
+			}
+		});
+		return solids.size() / 2;
+	}
+
+	private static int polygonCount(List<CSG> solids) {
+		int count = 0;
+		for (CSG solid : solids) {
+			count += solid.getPolygons().size();
+		}
+		return count;
+	}
+
+	/**
+	 * Merges one half of a {@link CSG#unionAll(Collection)} while forking the
+	 * other, as long as the halves are big enough to be worth it.
+	 */
+	private static class UnionAllTask extends RecursiveTask<CSG> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<CSG> solids;
+		private final CSGOptions options;
+
+		UnionAllTask(List<CSG> solids, CSGOptions options) {
+			this.solids = solids;
+			this.options = options;
+		}
+
+		@Override
+		protected CSG compute() {
+			if (solids.size() == 1 || !options.isParallel(polygonCount(solids))) {
+				return unionTree(solids, options);
+			}
+			int mid = sortSpatially(solids);
+			UnionAllTask second = new UnionAllTask(solids.subList(mid, solids.size()), options);
+			second.fork();
+			CSG a = new UnionAllTask(solids.subList(0, mid), options).compute();
+			return a.union(second.join(), options);
+		}
 	}
 
 	/**
@@ -134,12 +294,33 @@ public class CSG {
 	 * @verified
 	 */
 	public CSG subtract(CSG other) {
-		if (this.polygons == null || this.polygons.size() == 0
-				|| other.polygons == null || other.polygons.size() == 0) {
+		return subtract(other, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link #subtract(CSG)}, with the provided options.
+	 * 
+	 * @param other
+	 * @param options
+	 * @return
+	 */
+	public CSG subtract(CSG other, CSGOptions options) {
+		if (this.getPolygons() == null || this.getPolygons().size() == 0
+				|| other.getPolygons() == null || other.getPolygons().size() == 0) {
+			return this;
+		}
+		options = withTolerance(options, other);
+		BoundingBox overlap = overlap(other, options);
+		if (overlap == null) {
 			return this;
 		}
-		Node a = new Node(this.clone().polygons);
-		Node b = new Node(other.clone().polygons);
+		Node[] trees = trees(other, options);
+		Node a = trees[0];
+		Node b = trees[1];
+		// our polygons outside the overlap are kept as-is. Theirs can't cut
+		// anything, so they're dropped.
+		List<Polygon> outside = a.removePolygonsOutside(overlap);
+		b.removePolygonsOutside(overlap);
 		a.invert();
 		a.clipTo(b);
 		b.clipTo(a);
@@ -148,7 +329,9 @@ public class CSG {
 		b.invert();
 		a.build(b.allPolygons());
 		a.invert();
-		return CSG.fromPolygons(a.allPolygons());
+		List<Polygon> polygons = a.allPolygons();
+		polygons.addAll(outside);
+		return result(polygons, options);
 	}
 
 	/**
@@ -176,13 +359,33 @@ public class CSG {
 	 * @verified
 	 */
 	public CSG intersect(CSG other) {
-		if (this.polygons == null || this.polygons.size() == 0) {
+		return intersect(other, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link #intersect(CSG)}, with the provided options.
+	 * 
+	 * @param other
+	 * @param options
+	 * @return
+	 */
+	public CSG intersect(CSG other, CSGOptions options) {
+		if (this.getPolygons() == null || this.getPolygons().size() == 0) {
 			return other; // intersection with the universe.
-		} else if (other == null || other.polygons == null || other.polygons.size() == 0) {
+		} else if (other == null || other.getPolygons() == null || other.getPolygons().size() == 0) {
 			return this; // intersection with the universe.
 		}
-		Node a = new Node(this.clone().polygons);
-		Node b = new Node(other.clone().polygons);
+		options = withTolerance(options, other);
+		BoundingBox overlap = overlap(other, options);
+		if (overlap == null) {
+			return CSG.fromPolygons(new ArrayList<Polygon>());
+		}
+		Node[] trees = trees(other, options);
+		Node a = trees[0];
+		Node b = trees[1];
+		// nothing outside the overlap can be inside both solids.
+		a.removePolygonsOutside(overlap);
+		b.removePolygonsOutside(overlap);
 		a.invert();
 		b.clipTo(a);
 		b.invert();
@@ -190,7 +393,166 @@ public class CSG {
 		b.clipTo(a);
 		a.build(b.allPolygons());
 		a.invert();
-		return CSG.fromPolygons(a.allPolygons());
+		return result(a.allPolygons(), options);
+	}
+
+	/**
+	 * @param polygons
+	 *            a list the result can own. Polygons kept whole from a
+	 *            {@link #snapshot()} operand are replaced in it with copies
+	 *            that can be changed (see {@link Polygon#thawed()}).
+	 * @return the result of a boolean operation, merged if `options` say so.
+	 */
+	static CSG result(List<Polygon> polygons, CSGOptions options) {
+		for (int i = 0; i < polygons.size(); i++) {
+			polygons.set(i, polygons.get(i).thawed());
+		}
+		Tolerance tolerance = options.getTolerance();
+		CSG csg = CSG.fromPolygons(options.isMergeCoplanar() ? CoplanarMerge.merge(polygons, options.effectiveTolerance()) : polygons);
+		csg.tolerance = tolerance;
+		return csg;
+	}
+
+	/**
+	 * Boolean operations cut faces into fragments along every plane of the
+	 * other solid, and chained operations cut the fragments again. This joins
+	 * fragments that lie on the same plane, share an edge and have the same
+	 * attributes into bigger convex polygons, and drops vertices in the middle
+	 * of straight edges. The surface is unchanged. This solid is not modified.
+	 * 
+	 * Also done on the results of boolean operations, with
+	 * {@link CSGOptions#setMergeCoplanar(boolean)}.
+	 * 
+	 * @return a new solid with the merged polygons.
+	 */
+	public CSG mergeCoplanar() {
+		CSG csg = CSG.fromPolygons(CoplanarMerge.merge(getPolygons(), getEffectiveTolerance()));
+		csg.tolerance = this.tolerance;
+		return csg;
+	}
+
+	/**
+	 * Same as {@link #union(CSG)}, with a compiled solid, whose BSP tree is
+	 * reused rather than rebuilt.
+	 * 
+	 * @param other
+	 * @return
+	 */
+	public CSG union(CompiledCSG other) {
+		if (this.getPolygons().size() == 0) {
+			return other.toCSG();
+		} else if (other.getPolygons().size() == 0) {
+			return this;
+		}
+		return CompiledCSG.wrap(getPolygons(), other.getOptions()).union(other);
+	}
+
+	/**
+	 * Same as {@link #subtract(CSG)}, with a compiled solid, whose BSP tree is
+	 * reused rather than rebuilt.
+	 * 
+	 * @param other
+	 * @return
+	 */
+	public CSG subtract(CompiledCSG other) {
+		if (this.getPolygons().size() == 0 || other.getPolygons().size() == 0
+				|| !getBounds().intersects(other.getBounds(), other.getOptions().effectiveTolerance().getPosition())) {
+			return this;
+		}
+		return CompiledCSG.wrap(getPolygons(), other.getOptions()).subtract(other);
+	}
+
+	/**
+	 * Same as {@link #intersect(CSG)}, with a compiled solid, whose BSP tree
+	 * is reused rather than rebuilt.
+	 * 
+	 * @param other
+	 * @return
+	 */
+	public CSG intersect(CompiledCSG other) {
+		if (this.getPolygons().size() == 0) {
+			return other.toCSG(); // intersection with the universe.
+		} else if (other.getPolygons().size() == 0) {
+			return this; // intersection with the universe.
+		}
+		return CompiledCSG.wrap(getPolygons(), other.getOptions()).intersect(other);
+	}
+
+	/**
+	 * Freeze a copy of this solid, to be used in many boolean operations. See
+	 * {@link CompiledCSG}.
+	 * 
+	 * @return
+	 */
+	public CompiledCSG compile() {
+		return compile(new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link #compile()}.
+	 * 
+	 * @param options
+	 *            used to build the BSP trees.
+	 * @return
+	 */
+	public CompiledCSG compile(CSGOptions options) {
+		return new CompiledCSG(getPolygons(), withTolerance(options, this));
+	}
+
+	/**
+	 * @return `options`, or a copy of them with the looser of this solid's and
+	 *         `other`'s tolerances, if `options` have none and either solid
+	 *         does.
+	 */
+	private CSGOptions withTolerance(CSGOptions options, CSG other) {
+		Tolerance tolerance = Tolerance.looser(this.tolerance, other.tolerance);
+		if (options.getTolerance() != null || tolerance == null) {
+			return options;
+		}
+		CSGOptions retval = new CSGOptions(options);
+		retval.setTolerance(tolerance);
+		return retval;
+	}
+
+	/**
+	 * @return the region where this solid's bounds and `other`'s overlap, or
+	 *         null if they don't touch.
+	 */
+	private BoundingBox overlap(CSG other, CSGOptions options) {
+		BoundingBox mine = getBounds();
+		BoundingBox theirs = other.getBounds();
+		if (!mine.intersects(theirs, options.effectiveTolerance().getPosition())) {
+			return null;
+		}
+		return mine.intersection(theirs);
+	}
+
+	/**
+	 * Build BSP trees from copies of this solid and `other`. With a pool in
+	 * `options`, the two trees are built at the same time.
+	 * 
+	 * @return this solid's tree, and the other's.
+	 */
+	private Node[] trees(CSG other, final CSGOptions options) {
+		final List<Polygon> mine = this.clone().getPolygons();
+		final List<Polygon> theirs = other.clone().getPolygons();
+		if (!options.isParallel(mine.size() + theirs.size())) {
+			return new Node[] { new Node(mine, options), new Node(theirs, options) };
+		}
+		return options.invoke(new RecursiveTask<Node[]>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Node[] compute() {
+				ForkJoinTask<Node> b = ForkJoinTask.adapt(new Callable<Node>() {
+					public Node call() {
+						return new Node(theirs, options);
+					}
+				}).fork();
+				Node a = new Node(mine, options);
+				return new Node[] { a, b.join() };
+			}
+		});
 	}
 
 	/**
@@ -205,38 +567,19 @@ public class CSG {
 	 * @verified
 	 */
 	public CSG inverse() {
-		// If we just blindly flip every poly, shared vertices will be flipped
-		// more than once.
-		// Instead, build a set of vertices, flip them, then flip the poly
-		// plane.
-		CSG csg = this.clone();
-		Set<Vertex> vSet = new HashSet<Vertex>();
-		for (Polygon p : csg.polygons) {
-			Collections.reverse(p.vertices);
-			vSet.addAll(p.vertices);
-			p.plane.flip();
+		// flipped() copies the vertices, so this solid is left alone.
+		List<Polygon> polygons = new ArrayList<Polygon>(getPolygons().size());
+		for (Polygon p : getPolygons()) {
+			polygons.add(p.flipped());
 		}
-
-		for (Vertex vx : vSet) {
-			vx.flip();
-		}
-		return csg;
+		return CSG.fromPolygons(polygons);
 	}
 
 	public CSG translate(double x, double y, double z) {
-		CSG retval = new CSG(this);
-		// if we just blindly translate every polygon, shared vertices will be
-		// translated more than once.
-		// Instead, build a set of all vertices, and translate them.
-		Set<Vertex> vSet = new HashSet<Vertex>();
-		for (Polygon p : retval.polygons) {
-			vSet.addAll(p.vertices);
-		}
-
-		for (Vertex vx : vSet) {
-			vx.translate(x, y, z);
-		}
-		return retval;
+		Matrix4d m = new Matrix4d();
+		m.setIdentity();
+		m.setTranslation(new Vector3d(x, y, z));
+		return transform(m);
 	}
 
 	public CSG translate(Vector3d v) {
@@ -244,30 +587,12 @@ public class CSG {
 	}
 
 	public CSG scale(Vector3d v) {
-		CSG retval = new CSG(this);
-
-		// if we just blindly scale every polygon, shared vertices will be
-		// scaled more than once.
-		// Instead, build a set of all vertices, and scale them.
-		Set<Vertex> vSet = new HashSet<Vertex>();
-		for (Polygon p : retval.polygons) {
-			vSet.addAll(p.vertices);
-		}
-
-		for (Vertex vx : vSet) {
-			vx.scale(v);
-		}
-
-		for (Polygon p : retval.polygons) {
-			// Scaling normals is a pain in the ass. Just rebuild the plane.
-			// Can't replace the existing reference, though, since it might be
-			// held
-			// elsewhere. Instead just update it.
-			Plane pl = Plane.fromPoints(p.vertices.get(0).pos, p.vertices.get(1).pos, p.vertices.get(2).pos);
-			p.plane.normal.set(pl.normal.x, pl.normal.y, pl.normal.z);
-			p.plane.w = pl.w;
-		}
-		return retval;
+		Matrix4d m = new Matrix4d();
+		m.setIdentity();
+		m.m00 = v.x;
+		m.m11 = v.y;
+		m.m22 = v.z;
+		return transform(m);
 	}
 
 	/**
@@ -289,22 +614,104 @@ public class CSG {
 	 * @return
 	 */
 	public CSG rotate(Quat4d rotation) {
-		CSG retval = new CSG(this);
-		// if we just blindly rotate every polygon, shared vertices will be
-		// rotated more than once.
-		// Instead, build a set of all vertices, and rotate them.
-		Set<Vertex> vSet = new HashSet<Vertex>();
-		for (Polygon p : retval.polygons) {
-			p.plane.rotate(rotation);
-			vSet.addAll(p.vertices);
-		}
+		Quat4d q = new Quat4d(rotation);
+		q.normalize();
+		Matrix4d m = new Matrix4d();
+		m.set(q);
+		return transform(m);
+	}
 
-		for (Vertex vx : vSet) {
-			vx.rotate(rotation);
+	/**
+	 * Return a new CSG solid, transformed by the affine matrix `transform`
+	 * after any transforms still pending on this one. This solid is not
+	 * modified.
+	 * 
+	 * Nothing is copied here: the new solid shares this one's polygons and
+	 * only remembers the combined matrix, so chained transforms are cheap. The
+	 * matrix is applied once, the first time the polygons are needed (see
+	 * {@link #getPolygons()}). Until then, this solid's polygons must not be
+	 * changed in place.
+	 * 
+	 * @param transform
+	 * @return
+	 */
+	public CSG transform(Matrix4d transform) {
+		CSG retval = new CSG();
+		Matrix4d combined = new Matrix4d(transform);
+		synchronized (this) {
+			if (this.pending != null) {
+				combined.mul(this.pending);
+			}
+			retval.polygons = this.polygons;
 		}
+		retval.pending = combined;
+		retval.name = this.name + "Copy";
+		retval.tolerance = this.tolerance;
 		return retval;
 	}
 
+	/**
+	 * Apply the pending transform to copies of the polygons. Every polygon
+	 * gets its own vertices. Normals and planes are transformed by the
+	 * inverse transpose, so they stay perpendicular under non-uniform scaling.
+	 * Mirroring transforms reverse the vertex order, so the polygons still
+	 * face outwards.
+	 */
+	private synchronized void bake() {
+		Matrix4d m = this.pending;
+		if (m == null) {
+			return;
+		}
+		Matrix3d normalMatrix = new Matrix3d();
+		m.getRotationScale(normalMatrix);
+		double det = normalMatrix.determinant();
+		if (det != 0) {
+			normalMatrix.invert();
+			normalMatrix.transpose();
+		}
+		boolean mirror = det < 0;
+
+		// Matrix4d only applies the translation to points.
+		Point3d point = new Point3d();
+		Vector3d pos = new Vector3d();
+		Vector3d normal = new Vector3d();
+		List<Polygon> polygons = new ArrayList<Polygon>(this.polygons.size());
+		for (Polygon p : this.polygons) {
+			int size = p.vertices.size();
+			Vertex[] vertices = new Vertex[size];
+			for (int i = 0; i < size; i++) {
+				Vertex v = p.vertices.get(i);
+				point.set(v.pos);
+				m.transform(point);
+				pos.set(point);
+				normal.set(v.normal);
+				normalMatrix.transform(normal);
+				normalize(normal);
+				vertices[mirror ? size - 1 - i : i] = new Vertex(pos, normal, v.tex);
+			}
+			Plane plane;
+			if (det == 0) {
+				// flattened. There is no inverse, so go by the points.
+				plane = Plane.fromPoints(vertices[0].pos, vertices[1].pos, vertices[2].pos);
+			} else {
+				normal.set(p.plane.normal);
+				normalMatrix.transform(normal);
+				normalize(normal);
+				plane = new Plane(normal, normal.dot(vertices[0].pos));
+			}
+			polygons.add(new Polygon(new ArrayList<Vertex>(Arrays.asList(vertices)), p.shared, plane));
+		}
+		this.polygons = polygons;
+		this.pending = null;
+	}
+
+	private static void normalize(Vector3d v) {
+		double length = v.length();
+		if (length > 0) {
+			v.scale(1 / length);
+		}
+	}
+
 	/**
 	 * Rotates by the xAngle, yAngle and zAngle angles (in radians), (aka pitch,
 	 * yaw, roll) in the local coordinate space.
@@ -361,19 +768,158 @@ public class CSG {
 	 * object.
 	 **/
 	public CSG(CSG other) {
-		for (Polygon p : other.polygons) {
+		for (Polygon p : other.getPolygons()) {
 			Polygon p2 = new Polygon(p);
 			this.polygons.add(p2);
 		}
 		this.name = other.name + "Copy";
 	}
 
+	/**
+	 * Applies any pending transform first (see {@link #transform(Matrix4d)}).
+	 * 
+	 * @return the polygons of this solid.
+	 */
 	public List<Polygon> getPolygons() {
+		if (pending != null) {
+			bake();
+		}
 		return this.polygons;
 	}
 
+	/**
+	 * A pending transform (see {@link #transform(Matrix4d)}) changes neither
+	 * the number of polygons nor their vertex counts, so this is enough to
+	 * size the solid without applying it.
+	 * 
+	 * @return the polygons as they are, without applying any pending
+	 *         transform. Not to be changed.
+	 */
+	synchronized List<Polygon> unbakedPolygons() {
+		return this.polygons;
+	}
+
+	/**
+	 * The bounds are cached until the polygon list is replaced or changes
+	 * size. If you move vertices in place, the cached bounds will be stale.
+	 * 
+	 * @return the axis-aligned bounds of this solid. Empty if there are no
+	 *         polygons.
+	 */
+	public BoundingBox getBounds() {
+		List<Polygon> polygons = getPolygons();
+		Cached<BoundingBox> cache = this.bounds;
+		if (cache == null || !cache.isFor(polygons)) {
+			cache = new Cached<BoundingBox>(BoundingBox.of(polygons), polygons);
+			this.bounds = cache;
+		}
+		return cache.value;
+	}
+
+	/**
+	 * Volume, surface area, centroid, inertia tensor and bounds, at a density
+	 * of 1. Solids of at least {@link MassProperties#PARALLEL_THRESHOLD}
+	 * polygons are summed in parallel, on the common pool. Cached like
+	 * {@link #getBounds()}.
+	 * 
+	 * @return the mass properties of this solid.
+	 */
+	public MassProperties getMassProperties() {
+		List<Polygon> polygons = getPolygons();
+		Cached<MassProperties> cache = this.massProperties;
+		if (cache == null || !cache.isFor(polygons)) {
+			CSGOptions options = new CSGOptions();
+			options.setPool(ForkJoinPool.commonPool());
+			options.setParallelThreshold(MassProperties.PARALLEL_THRESHOLD);
+			cache = new Cached<MassProperties>(MassProperties.of(polygons, options), polygons);
+			this.massProperties = cache;
+		}
+		return cache.value;
+	}
+
+	/**
+	 * A value computed from the polygon list, and the list (and its size) it
+	 * was computed from. Replacing or resizing the list invalidates it.
+	 */
+	private static final class Cached<T> {
+		final T value;
+		final List<Polygon> polygons;
+		final int count;
+
+		Cached(T value, List<Polygon> polygons) {
+			this.value = value;
+			this.polygons = polygons;
+			this.count = polygons.size();
+		}
+
+		boolean isFor(List<Polygon> polygons) {
+			return this.polygons == polygons && this.count == polygons.size();
+		}
+	}
+
+	/**
+	 * Boolean operations never change their operands (see
+	 * {@link Polygon#flip()}), so any solid can be used by many operations at
+	 * once, as long as nobody changes it. A snapshot makes sure of that: it is
+	 * a deep copy, taken once, whose polygon list, polygons and vertices can't
+	 * be changed (see {@link Polygon#isFrozen()}), other than by writing to the
+	 * public vector fields of a {@link Vertex}. Share it between threads
+	 * instead of copying the solid for each operation.
+	 * 
+	 * @return an immutable copy of this solid, or this solid if it already is
+	 *         one.
+	 */
+	public CSG snapshot() {
+		if (immutable) {
+			return this;
+		}
+		List<Polygon> copies = new ArrayList<Polygon>(getPolygons().size());
+		for (Polygon p : getPolygons()) {
+			Polygon copy = new Polygon(p);
+			copy.freeze();
+			copies.add(copy);
+		}
+		CSG csg = CSG.fromPolygons(Collections.unmodifiableList(copies));
+		csg.immutable = true;
+		csg.name = this.name;
+		csg.tolerance = this.tolerance;
+		return csg;
+	}
+
+	/**
+	 * @return true if this solid is a {@link #snapshot()}.
+	 */
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	public Tolerance getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @param tolerance
+	 *            the tolerances boolean operations on this solid use, unless
+	 *            their {@link CSGOptions} set one. When both solids have one,
+	 *            the looser of the two is used. The results keep it, so
+	 *            chained operations use it too. Null (the default) for
+	 *            {@link Tolerance#DEFAULT}. For a solid of any size,
+	 *            <code>setTolerance(Tolerance.forBounds(getBounds()))</code>.
+	 */
+	public void setTolerance(Tolerance tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @return the tolerance set, or {@link Tolerance#DEFAULT}.
+	 */
+	public Tolerance getEffectiveTolerance() {
+		return tolerance != null ? tolerance : Tolerance.DEFAULT;
+	}
+
 	public String toString() {
 		String retval = "\n{\"polys\": [";
+		List<Polygon> polygons = getPolygons();
 		int i = 0;
 		for (Polygon p : polygons) {
 			i++;
@@ -387,13 +933,15 @@ public class CSG {
 	}
 
 	/**
-	 * Shallow copy
+	 * Shallow copy. The polygons are new, but share their vertices with this
+	 * solid's, which is safe since nothing changes vertices in place.
 	 */
 	public CSG clone() {
 		CSG csg = new CSG();
-		for (Polygon p : polygons) {
+		for (Polygon p : getPolygons()) {
 			csg.polygons.add(p.clone());
 		}
+		csg.tolerance = this.tolerance;
 		return csg;
 	}
 }
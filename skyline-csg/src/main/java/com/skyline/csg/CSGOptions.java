@@ -0,0 +1,161 @@
+package com.skyline.csg;
+
+import java.util.concurrent.*;
+
+/**
+ * Per-operation settings for the CSG boolean operations (union, subtract,
+ * intersect), and for the BSP {@link Node}s they build. The defaults reproduce
+ * the original csg.js behaviour.
+ *
+ * @author philippd
+ */
+public class CSGOptions {
+
+	/**
+	 * Below this many polygons, a parallel operation isn't worth the overhead
+	 * of forking.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+	private SplitStrategy splitStrategy = SplitStrategy.FIRST;
+	private ForkJoinPool pool = null;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private boolean mergeCoplanar = false;
+	private boolean robust = false;
+	private Tolerance tolerance = null;
+
+	public CSGOptions() {
+	}
+
+	public CSGOptions(SplitStrategy splitStrategy) {
+		setSplitStrategy(splitStrategy);
+	}
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param other
+	 */
+	public CSGOptions(CSGOptions other) {
+		this.splitStrategy = other.splitStrategy;
+		this.pool = other.pool;
+		this.parallelThreshold = other.parallelThreshold;
+		this.mergeCoplanar = other.mergeCoplanar;
+		this.robust = other.robust;
+		this.tolerance = other.tolerance;
+	}
+
+	public SplitStrategy getSplitStrategy() {
+		return splitStrategy;
+	}
+
+	/**
+	 * @param splitStrategy
+	 *            how BSP nodes pick their splitting plane. Defaults to
+	 *            {@link SplitStrategy#FIRST}.
+	 */
+	public void setSplitStrategy(SplitStrategy splitStrategy) {
+		assert splitStrategy != null : "splitStrategy can't be null.";
+		this.splitStrategy = splitStrategy;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to run BSP work on, or null (the default) to run
+	 *            everything on the calling thread.
+	 *            {@link ForkJoinPool#commonPool()} is a good choice.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * @param parallelThreshold
+	 *            the minimum number of polygons for which work is forked off to
+	 *            the pool. Smaller batches are processed serially.
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		assert parallelThreshold > 0 : "parallelThreshold must be positive.";
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	public boolean isMergeCoplanar() {
+		return mergeCoplanar;
+	}
+
+	/**
+	 * @param mergeCoplanar
+	 *            whether to run {@link CSG#mergeCoplanar()} on the results, so
+	 *            chained operations don't pile up fragments. Off by default.
+	 */
+	public void setMergeCoplanar(boolean mergeCoplanar) {
+		this.mergeCoplanar = mergeCoplanar;
+	}
+
+	public boolean isRobust() {
+		return robust;
+	}
+
+	/**
+	 * @param robust
+	 *            whether polygons are split, and split planes scored, with a
+	 *            scale-relative tolerance, by both {@link CSG} and
+	 *            {@link FlatMesh}: points are on a plane when they're within
+	 *            10^-12 of the size of the terms of its equation, instead of
+	 *            within the fixed position tolerance. That is well above the
+	 *            rounding error at any scale, but it is still a tolerance, not
+	 *            exact arithmetic: points right at its edge may go either way.
+	 *            Use it for solids far from the origin, or with details
+	 *            smaller than the tolerance. Off by default.
+	 */
+	public void setRobust(boolean robust) {
+		this.robust = robust;
+	}
+
+	public Tolerance getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @param tolerance
+	 *            the tolerances to clip, split and merge with, or null (the
+	 *            default) to use the solids' own (see
+	 *            {@link CSG#setTolerance(Tolerance)}), or
+	 *            {@link Tolerance#DEFAULT} if they have none. The position
+	 *            tolerance isn't used to split polygons in robust mode, which
+	 *            scales by itself.
+	 */
+	public void setTolerance(Tolerance tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @return the tolerance set, or {@link Tolerance#DEFAULT}.
+	 */
+	public Tolerance effectiveTolerance() {
+		return tolerance != null ? tolerance : Tolerance.DEFAULT;
+	}
+
+	/**
+	 * @return true if work over `count` polygons should be forked.
+	 */
+	boolean isParallel(int count) {
+		return pool != null && count >= parallelThreshold;
+	}
+
+	/**
+	 * Run `task` on the pool. If we're already running on the pool, just run
+	 * it in the current worker.
+	 */
+	<T> T invoke(ForkJoinTask<T> task) {
+		return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+	}
+}
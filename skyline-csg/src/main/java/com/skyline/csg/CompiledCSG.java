@@ -0,0 +1,535 @@
+package com.skyline.csg;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+/**
+ * A solid, frozen together with its BSP trees, for use in many boolean
+ * operations. The trees are built once, the first time they're needed, and are
+ * only ever read after that. Nothing is cloned or rebuilt per operation, and
+ * any number of operations, on any number of threads, can use the same
+ * compiled solid at once.
+ *
+ * The typical use is a cutter subtracted from many solids:
+ *
+ * <pre>
+ * CompiledCSG window = new Box(1, 1.5, 1).compile();
+ * for (CSG wall : walls) {
+ * 	wall.subtract(window.translate(x, 0, 0));
+ * }
+ * </pre>
+ *
+ * {@link #translate(Vector3d)} and {@link #rotate(Quat4d)} return placed
+ * copies that share the trees. Polygons are moved into the compiled solid's
+ * own space, clipped there, and moved back.
+ *
+ * The results are the same as {@link CSG#union(CSG)},
+ * {@link CSG#subtract(CSG)} and {@link CSG#intersect(CSG)}, but with fewer
+ * fragments, since they aren't run through another BSP build.
+ *
+ * The same tree answers point and ray queries, {@link #contains(Vector3d)}
+ * and {@link #raycast(Vector3d, Vector3d)}, by walking down it instead of
+ * testing every polygon. They have batch versions over arrays of coordinates,
+ * split across the pool if the options have one.
+ *
+ * @author philippd
+ */
+public final class CompiledCSG {
+
+	/**
+	 * The boolean operations, for {@link #clipLeftOperand(Op, List)} and
+	 * {@link #clipRightOperand(Op, List)}.
+	 */
+	public enum Op {
+		UNION, SUBTRACT, INTERSECT
+	}
+
+	private final Trees trees;
+	// where the compiled polygons are placed, and back. Both null if they
+	// stay where they were compiled. Only rigid motions, since clipping
+	// tolerances aren't scale invariant.
+	private final Matrix4d placement, inverse;
+
+	private volatile List<Polygon> polygons;
+	private volatile BoundingBox bounds;
+
+	/**
+	 * The polygons as compiled, and the trees built from them. Shared by all
+	 * placed copies.
+	 */
+	private static final class Trees {
+		final List<Polygon> polygons;
+		final CSGOptions options;
+		private volatile Node tree, inverted;
+
+		Trees(List<Polygon> polygons, CSGOptions options) {
+			this.polygons = polygons;
+			this.options = options;
+		}
+
+		Node tree() {
+			Node retval = tree;
+			if (retval == null) {
+				synchronized (this) {
+					if (tree == null) {
+						tree = new Node(new ArrayList<Polygon>(polygons), options);
+					}
+					retval = tree;
+				}
+			}
+			return retval;
+		}
+
+		/**
+		 * Built from clones, since inverting flips the polygons in place.
+		 */
+		Node inverted() {
+			Node retval = inverted;
+			if (retval == null) {
+				synchronized (this) {
+					if (inverted == null) {
+						List<Polygon> copies = new ArrayList<Polygon>(polygons.size());
+						for (Polygon p : polygons) {
+							copies.add(p.clone());
+						}
+						Node node = new Node(copies, options);
+						node.invert();
+						inverted = node;
+					}
+					retval = inverted;
+				}
+			}
+			return retval;
+		}
+	}
+
+	/**
+	 * Compile copies of `polygons`.
+	 *
+	 * @param polygons
+	 * @param options
+	 *            used to build the trees.
+	 */
+	public CompiledCSG(List<Polygon> polygons, CSGOptions options) {
+		this(new Trees(copies(polygons), options));
+	}
+
+	private CompiledCSG(Trees trees) {
+		this.trees = trees;
+		this.placement = null;
+		this.inverse = null;
+	}
+
+	private CompiledCSG(Trees trees, Matrix4d placement) {
+		this.trees = trees;
+		this.placement = placement;
+		this.inverse = new Matrix4d(placement);
+		this.inverse.invert();
+	}
+
+	/**
+	 * Compile `polygons` without copying them. For throwaway operands, which
+	 * nobody changes while they're in use.
+	 */
+	public static CompiledCSG wrap(List<Polygon> polygons, CSGOptions options) {
+		return new CompiledCSG(new Trees(polygons, options));
+	}
+
+	CSGOptions getOptions() {
+		return trees.options;
+	}
+
+	private static List<Polygon> copies(List<Polygon> polygons) {
+		List<Polygon> retval = new ArrayList<Polygon>(polygons.size());
+		for (Polygon p : polygons) {
+			retval.add(new Polygon(p));
+		}
+		return retval;
+	}
+
+	/**
+	 * @return the polygons, where this copy is placed. Don't change them.
+	 */
+	public List<Polygon> getPolygons() {
+		List<Polygon> retval = polygons;
+		if (retval == null) {
+			retval = Collections.unmodifiableList(toPlaced(trees.polygons));
+			polygons = retval;
+		}
+		return retval;
+	}
+
+	public BoundingBox getBounds() {
+		BoundingBox retval = bounds;
+		if (retval == null) {
+			retval = BoundingBox.of(getPolygons());
+			bounds = retval;
+		}
+		return retval;
+	}
+
+	/**
+	 * @return a new, independent solid with copies of the polygons.
+	 */
+	public CSG toCSG() {
+		return CSG.fromPolygons(copies(getPolygons()));
+	}
+
+	public CompiledCSG translate(double x, double y, double z) {
+		Matrix4d m = new Matrix4d();
+		m.setIdentity();
+		m.setTranslation(new Vector3d(x, y, z));
+		return place(m);
+	}
+
+	public CompiledCSG translate(Vector3d v) {
+		return translate(v.x, v.y, v.z);
+	}
+
+	public CompiledCSG rotate(Quat4d rotation) {
+		Quat4d q = new Quat4d(rotation);
+		q.normalize();
+		Matrix4d m = new Matrix4d();
+		m.set(q);
+		return place(m);
+	}
+
+	/**
+	 * @return a copy sharing the trees, moved by `motion` after any placement
+	 *         of this one.
+	 */
+	private CompiledCSG place(Matrix4d motion) {
+		if (placement != null) {
+			motion.mul(placement);
+		}
+		return new CompiledCSG(trees, motion);
+	}
+
+	/**
+	 * Same as {@link CSG#union(CSG)}. The results of this and the other
+	 * operations are merged if `other`'s options say so (see
+	 * {@link CSGOptions#setMergeCoplanar(boolean)}).
+	 */
+	public CSG union(CompiledCSG other) {
+		List<Polygon> polygons = other.clipLeftOperand(Op.UNION, disposable());
+		polygons.addAll(this.clipRightOperand(Op.UNION, other.disposable()));
+		return CSG.result(polygons, other.getOptions());
+	}
+
+	/**
+	 * Same as {@link CSG#subtract(CSG)}.
+	 */
+	public CSG subtract(CompiledCSG other) {
+		List<Polygon> polygons = other.clipLeftOperand(Op.SUBTRACT, disposable());
+		polygons.addAll(this.clipRightOperand(Op.SUBTRACT, other.disposable()));
+		return CSG.result(polygons, other.getOptions());
+	}
+
+	/**
+	 * Same as {@link CSG#intersect(CSG)}.
+	 */
+	public CSG intersect(CompiledCSG other) {
+		List<Polygon> polygons = other.clipLeftOperand(Op.INTERSECT, disposable());
+		polygons.addAll(this.clipRightOperand(Op.INTERSECT, other.disposable()));
+		return CSG.result(polygons, other.getOptions());
+	}
+
+	/**
+	 * @param point
+	 * @return true if `point` is inside this solid, or on its surface, within
+	 *         the position tolerance of the options it was compiled with.
+	 */
+	public boolean contains(Vector3d point) {
+		return contains(point.x, point.y, point.z);
+	}
+
+	/**
+	 * Same as {@link #contains(Vector3d)}.
+	 */
+	public boolean contains(double x, double y, double z) {
+		Node tree = trees.tree();
+		double epsilon = trees.options.effectiveTolerance().getPosition();
+		if (inverse == null) {
+			return tree.contains(x, y, z, epsilon);
+		}
+		Point3d local = new Point3d(x, y, z);
+		inverse.transform(local);
+		return tree.contains(local.x, local.y, local.z, epsilon);
+	}
+
+	/**
+	 * Same as {@link #contains(Vector3d)}, for many points.
+	 *
+	 * @param points
+	 *            x, y and z of each point, one point after the other.
+	 * @param retval
+	 *            set to whether each point is inside. At least a third as long
+	 *            as `points`.
+	 */
+	public void contains(final double[] points, final boolean[] retval) {
+		assert points.length % 3 == 0 && retval.length >= points.length / 3 : "3 coordinates per point, and a result for each.";
+		trees.tree();
+		batch(points.length / 3, new Batch() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					retval[i] = contains(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #raycast(Vector3d, Vector3d, Vector3d)}, without the
+	 * normal.
+	 */
+	public double raycast(Vector3d origin, Vector3d direction) {
+		return raycast(origin, direction, null);
+	}
+
+	/**
+	 * Find where a ray first enters this solid. Rays lying in the plane of a
+	 * face don't hit it.
+	 *
+	 * @param origin
+	 * @param direction
+	 *            needn't be normalized.
+	 * @param normal
+	 *            if not null, and the ray hits, set to the normal of the
+	 *            surface it hits, facing the ray. Zero if `origin` is inside.
+	 * @return the smallest t &gt;= 0 for which origin + t * direction is inside
+	 *         this solid, or {@link Double#POSITIVE_INFINITY} if the ray misses
+	 *         it. 0 if `origin` is inside.
+	 */
+	public double raycast(Vector3d origin, Vector3d direction, Vector3d normal) {
+		return raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, normal);
+	}
+
+	/**
+	 * Same as {@link #raycast(Vector3d, Vector3d)}, for many rays.
+	 *
+	 * @param origins
+	 *            x, y and z of each ray's origin, one ray after the other.
+	 * @param directions
+	 *            x, y and z of each ray's direction.
+	 * @param retval
+	 *            set to each ray's t. At least a third as long as `origins`.
+	 */
+	public void raycast(double[] origins, double[] directions, double[] retval) {
+		raycast(origins, directions, retval, null);
+	}
+
+	/**
+	 * Same as {@link #raycast(Vector3d, Vector3d, Vector3d)}, for many rays.
+	 *
+	 * @param origins
+	 *            x, y and z of each ray's origin, one ray after the other.
+	 * @param directions
+	 *            x, y and z of each ray's direction.
+	 * @param retval
+	 *            set to each ray's t. At least a third as long as `origins`.
+	 * @param normals
+	 *            null, or set to x, y and z of each hit's normal. Left as they
+	 *            are for rays that miss. As long as `origins`.
+	 */
+	public void raycast(final double[] origins, final double[] directions, final double[] retval, final double[] normals) {
+		assert origins.length % 3 == 0 && directions.length == origins.length && retval.length >= origins.length / 3
+				&& (normals == null || normals.length >= origins.length) : "3 coordinates per ray, and a result for each.";
+		trees.tree();
+		batch(origins.length / 3, new Batch() {
+			public void run(int from, int to) {
+				Vector3d normal = normals == null ? null : new Vector3d();
+				for (int i = from; i < to; i++) {
+					int j = 3 * i;
+					double t = raycast(origins[j], origins[j + 1], origins[j + 2], directions[j], directions[j + 1], directions[j + 2], normal);
+					retval[i] = t;
+					if (normals != null && t != Double.POSITIVE_INFINITY) {
+						normals[j] = normal.x;
+						normals[j + 1] = normal.y;
+						normals[j + 2] = normal.z;
+					}
+				}
+			}
+		});
+	}
+
+	private double raycast(double ox, double oy, double oz, double dx, double dy, double dz, Vector3d normal) {
+		Node tree = trees.tree();
+		double epsilon = trees.options.effectiveTolerance().getPosition();
+		if (inverse == null) {
+			return tree.raycast(ox, oy, oz, dx, dy, dz, epsilon, normal);
+		}
+		// rigid, so t is the same in both spaces.
+		Point3d origin = new Point3d(ox, oy, oz);
+		Vector3d direction = new Vector3d(dx, dy, dz);
+		inverse.transform(origin);
+		inverse.transform(direction);
+		double retval = tree.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, epsilon, normal);
+		if (normal != null && retval != Double.POSITIVE_INFINITY) {
+			placement.transform(normal);
+		}
+		return retval;
+	}
+
+	/**
+	 * Queries from `from` (inclusive) to `to` (exclusive) of a batch.
+	 */
+	private interface Batch {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Run `count` queries, split across the pool if there are enough of them.
+	 */
+	private void batch(int count, Batch batch) {
+		CSGOptions options = trees.options;
+		if (options.isParallel(count)) {
+			options.invoke(new BatchTask(batch, 0, count, options.getParallelThreshold()));
+		} else {
+			batch.run(0, count);
+		}
+	}
+
+	private static class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Batch batch;
+		private final int from, to, threshold;
+
+		BatchTask(Batch batch, int from, int to, int threshold) {
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				batch.run(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new BatchTask(batch, from, mid, threshold), new BatchTask(batch, mid, to, threshold));
+		}
+	}
+
+	/**
+	 * @return clones of the polygons, which may end up in a result.
+	 */
+	private List<Polygon> disposable() {
+		List<Polygon> polygons = getPolygons();
+		List<Polygon> retval = new ArrayList<Polygon>(polygons.size());
+		for (Polygon p : polygons) {
+			retval.add(p.clone());
+		}
+		return retval;
+	}
+
+	/**
+	 * Clip the polygons of the left operand of `op`, with this solid as the
+	 * right operand. The union, subtraction and intersection are made of these
+	 * and the polygons of the right operand clipped by
+	 * {@link #clipRightOperand(Op, List)}, so both can be done one polygon at
+	 * a time, and redone for only the polygons that changed.
+	 *
+	 * @param polygons
+	 *            the left operand's polygons. They may be returned as-is.
+	 * @return the parts of `polygons` that are part of the result.
+	 */
+	public List<Polygon> clipLeftOperand(Op op, List<Polygon> polygons) {
+		List<Polygon> retval = new ArrayList<Polygon>(polygons.size());
+		List<Polygon> touching = touching(polygons, op != Op.INTERSECT, retval);
+		if (touching.isEmpty()) {
+			return retval;
+		}
+		touching = toLocal(touching);
+		List<Polygon> clipped;
+		switch (op) {
+		case UNION:
+			clipped = trees.tree().clipPolygons(touching);
+			break;
+		case SUBTRACT:
+			clipped = flipped(trees.tree().clipPolygons(flipped(touching)));
+			break;
+		default:
+			clipped = flipped(trees.inverted().clipPolygons(flipped(touching)));
+			break;
+		}
+		retval.addAll(toPlaced(clipped));
+		return retval;
+	}
+
+	/**
+	 * Clip the polygons of the right operand of `op`, with this solid as the
+	 * left operand. See {@link #clipLeftOperand(Op, List)}.
+	 *
+	 * @param polygons
+	 *            the right operand's polygons. They may be returned as-is.
+	 * @return the parts of `polygons` that are part of the result.
+	 */
+	public List<Polygon> clipRightOperand(Op op, List<Polygon> polygons) {
+		List<Polygon> retval = new ArrayList<Polygon>(polygons.size());
+		List<Polygon> touching = touching(polygons, op == Op.UNION, retval);
+		if (touching.isEmpty()) {
+			return retval;
+		}
+		touching = toLocal(touching);
+		List<Polygon> clipped;
+		switch (op) {
+		case UNION:
+			// the second pass drops faces coplanar with, and facing the same
+			// way as, one of ours.
+			Node tree = trees.tree();
+			clipped = flipped(tree.clipPolygons(flipped(tree.clipPolygons(touching))));
+			break;
+		case SUBTRACT:
+			Node inverted = trees.inverted();
+			clipped = inverted.clipPolygons(flipped(inverted.clipPolygons(touching)));
+			break;
+		default:
+			inverted = trees.inverted();
+			clipped = flipped(inverted.clipPolygons(flipped(inverted.clipPolygons(touching))));
+			break;
+		}
+		retval.addAll(toPlaced(clipped));
+		return retval;
+	}
+
+	/**
+	 * @param keepApart
+	 *            whether polygons away from this solid are part of the result.
+	 *            If so, they're added to `retval`.
+	 * @return the polygons that touch this solid's bounds, and need clipping.
+	 */
+	private List<Polygon> touching(List<Polygon> polygons, boolean keepApart, List<Polygon> retval) {
+		BoundingBox bounds = getBounds();
+		double epsilon = trees.options.effectiveTolerance().getPosition();
+		List<Polygon> touching = new ArrayList<Polygon>();
+		for (Polygon p : polygons) {
+			if (bounds.intersects(p, epsilon)) {
+				touching.add(p);
+			} else if (keepApart) {
+				retval.add(p);
+			}
+		}
+		return touching;
+	}
+
+	private List<Polygon> toLocal(List<Polygon> polygons) {
+		return inverse == null ? polygons : CSG.fromPolygons(polygons).transform(inverse).getPolygons();
+	}
+
+	private List<Polygon> toPlaced(List<Polygon> polygons) {
+		return placement == null ? polygons : CSG.fromPolygons(polygons).transform(placement).getPolygons();
+	}
+
+	private static List<Polygon> flipped(List<Polygon> polygons) {
+		List<Polygon> retval = new ArrayList<Polygon>(polygons.size());
+		for (Polygon p : polygons) {
+			retval.add(p.flipped());
+		}
+		return retval;
+	}
+}
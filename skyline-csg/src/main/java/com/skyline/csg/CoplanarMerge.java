@@ -0,0 +1,275 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+/**
+ * Merges the fragments boolean operations leave behind. Polygons on the same
+ * plane, with the same `shared` flag, that have an edge in common and the same
+ * normals and texture coordinates at its ends, are joined, as long as the
+ * result is still convex. Joining repeats until nothing more can be joined.
+ * Vertices on a straight line between their neighbours are then dropped.
+ *
+ * Edges only match if they have the same ends. Edges ending in the middle of a
+ * neighbour's edge (T-junctions) are left alone, so the result is the same
+ * surface, in fewer pieces, but not always the fewest.
+ *
+ * @author philippd
+ */
+final class CoplanarMerge {
+
+	private CoplanarMerge() {
+	}
+
+	/**
+	 * @param polygons
+	 *            left as they are. Their vertices may be used in the result.
+	 * @param tolerance
+	 *            how close planes, positions and attributes have to be to
+	 *            match.
+	 * @return the merged polygons. Polygons that didn't change are returned
+	 *         as-is.
+	 */
+	static List<Polygon> merge(List<Polygon> polygons, Tolerance tolerance) {
+		Map<PlaneKey, List<Polygon>> groups = new LinkedHashMap<PlaneKey, List<Polygon>>();
+		for (Polygon p : polygons) {
+			PlaneKey key = new PlaneKey(p, tolerance);
+			List<Polygon> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<Polygon>();
+				groups.put(key, group);
+			}
+			group.add(p);
+		}
+		List<Polygon> retval = new ArrayList<Polygon>(polygons.size());
+		for (List<Polygon> group : groups.values()) {
+			if (group.size() == 1) {
+				retval.add(simplified(group.get(0), tolerance));
+			} else {
+				mergeGroup(group, tolerance, retval);
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Join the polygons of `group`, which are all on the same plane, and add
+	 * the results to `retval`.
+	 */
+	private static void mergeGroup(List<Polygon> group, Tolerance tolerance, List<Polygon> retval) {
+		int n = group.size();
+		List<List<Vertex>> loops = new ArrayList<List<Vertex>>(n);
+		for (Polygon p : group) {
+			loops.add(p.vertices);
+		}
+		boolean[] merged = new boolean[n], dead = new boolean[n];
+		Vector3d normal = group.get(0).plane.normal;
+		Map<EdgeKey, Integer> edges = new HashMap<EdgeKey, Integer>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			edges.clear();
+			for (int i = 0; i < n; i++) {
+				if (!dead[i]) {
+					List<Vertex> loop = loops.get(i);
+					for (int j = 0; j < loop.size(); j++) {
+						edges.put(new EdgeKey(loop.get(j).pos, loop.get((j + 1) % loop.size()).pos, tolerance), i);
+					}
+				}
+			}
+			// a polygon merged in this pass has stale edges in the map, so it
+			// waits for the next pass.
+			boolean[] touched = new boolean[n];
+			for (int i = 0; i < n; i++) {
+				if (dead[i] || touched[i]) {
+					continue;
+				}
+				List<Vertex> loop = loops.get(i);
+				for (int j = 0; j < loop.size(); j++) {
+					Integer other = edges.get(new EdgeKey(loop.get((j + 1) % loop.size()).pos, loop.get(j).pos, tolerance));
+					if (other == null || other == i || dead[other] || touched[other]) {
+						continue;
+					}
+					List<Vertex> joined = join(loop, j, loops.get(other), normal, tolerance);
+					if (joined != null) {
+						loops.set(i, joined);
+						dead[other] = true;
+						merged[i] = true;
+						touched[i] = true;
+						touched[other] = true;
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (dead[i]) {
+				continue;
+			}
+			Polygon p = group.get(i);
+			if (merged[i]) {
+				retval.add(new Polygon(loops.get(i), p.shared, p.plane.clone()));
+			} else {
+				retval.add(simplified(p, tolerance));
+			}
+		}
+	}
+
+	/**
+	 * @param p
+	 *            its edge from `p[j]` to `p[j + 1]` is the reverse of one of
+	 *            `q`'s.
+	 * @return the outline of both polygons, without collinear vertices, or null
+	 *         if it isn't convex, or the attributes at the edge don't match.
+	 */
+	private static List<Vertex> join(List<Vertex> p, int j, List<Vertex> q, Vector3d normal, Tolerance tolerance) {
+		int n = p.size(), m = q.size();
+		Vertex a = p.get(j), b = p.get((j + 1) % n);
+		EdgeKey reverse = new EdgeKey(b.pos, a.pos, tolerance);
+		int k = -1;
+		for (int i = 0; i < m; i++) {
+			if (new EdgeKey(q.get(i).pos, q.get((i + 1) % m).pos, tolerance).equals(reverse)) {
+				k = i;
+				break;
+			}
+		}
+		if (k < 0 || !sameAttributes(a, q.get((k + 1) % m), tolerance) || !sameAttributes(b, q.get(k), tolerance)) {
+			return null;
+		}
+		List<Vertex> retval = new ArrayList<Vertex>(n + m - 2);
+		Set<EdgeKey> corners = new HashSet<EdgeKey>();
+		// p from b round to a, then q from after a round to before b.
+		for (int i = 1; i <= n; i++) {
+			Vertex v = p.get((j + i) % n);
+			corners.add(new EdgeKey(v.pos, v.pos, tolerance));
+			retval.add(v);
+		}
+		for (int i = 2; i < m; i++) {
+			Vertex v = q.get((k + i) % m);
+			if (!corners.add(new EdgeKey(v.pos, v.pos, tolerance))) {
+				// they share more than this edge.
+				return null;
+			}
+			retval.add(v);
+		}
+		return convexOutline(retval, normal, tolerance);
+	}
+
+	/**
+	 * @return `vertices` without the collinear ones, or null if they don't
+	 *         turn the same way all the way round.
+	 */
+	private static List<Vertex> convexOutline(List<Vertex> vertices, Vector3d normal, Tolerance tolerance) {
+		List<Vertex> retval = new ArrayList<Vertex>(vertices.size());
+		Vector3d in = new Vector3d(), out = new Vector3d(), chord = new Vector3d(), cross = new Vector3d();
+		int n = vertices.size();
+		for (int i = 0; i < n; i++) {
+			Vector3d prev = vertices.get((i + n - 1) % n).pos, pos = vertices.get(i).pos, next = vertices.get((i + 1) % n).pos;
+			in.sub(pos, prev);
+			out.sub(next, pos);
+			chord.sub(next, prev);
+			cross.cross(in, out);
+			double turn = cross.dot(normal);
+			// turn / |chord| is the distance of `pos` from the line between
+			// its neighbours.
+			if (Math.abs(turn) <= tolerance.getPosition() * chord.length()) {
+				continue;
+			}
+			if (turn < 0) {
+				return null;
+			}
+			retval.add(vertices.get(i));
+		}
+		return retval.size() >= 3 ? retval : null;
+	}
+
+	/**
+	 * @return `p` without its collinear vertices, or `p` if it has none.
+	 */
+	private static Polygon simplified(Polygon p, Tolerance tolerance) {
+		if (p.vertices.size() == 3) {
+			return p;
+		}
+		List<Vertex> outline = convexOutline(p.vertices, p.plane.normal, tolerance);
+		if (outline == null || outline.size() == p.vertices.size()) {
+			return p;
+		}
+		return new Polygon(outline, p.shared, p.plane.clone());
+	}
+
+	private static boolean sameAttributes(Vertex a, Vertex b, Tolerance tolerance) {
+		return a.normal.epsilonEquals(b.normal, tolerance.getNormal()) && a.tex.epsilonEquals(b.tex, (float) tolerance.getUv());
+	}
+
+	private static long round(double d, double epsilon) {
+		return Math.round(d / epsilon);
+	}
+
+	/**
+	 * A plane and a `shared` flag. The normal is rounded to the normal
+	 * tolerance, the distance from the origin to the position tolerance.
+	 */
+	private static final class PlaneKey {
+		final long x, y, z, w;
+		final boolean shared;
+
+		PlaneKey(Polygon p, Tolerance tolerance) {
+			Vector3d normal = p.plane.normal;
+			// a normal tolerance of 0 still has to group equal normals.
+			double epsilon = Math.max(tolerance.getNormal(), Math.ulp(1.0));
+			x = round(normal.x, epsilon);
+			y = round(normal.y, epsilon);
+			z = round(normal.z, epsilon);
+			w = round(p.plane.w, tolerance.getPosition());
+			shared = p.shared;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (((x * 31 + y) * 31 + z) * 31 + w) * 2 + (shared ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PlaneKey)) {
+				return false;
+			}
+			PlaneKey other = (PlaneKey) obj;
+			return x == other.x && y == other.y && z == other.z && w == other.w && shared == other.shared;
+		}
+	}
+
+	/**
+	 * A directed edge between two positions, rounded to the position
+	 * tolerance.
+	 */
+	private static final class EdgeKey {
+		final long ax, ay, az, bx, by, bz;
+
+		EdgeKey(Vector3d a, Vector3d b, Tolerance tolerance) {
+			double epsilon = tolerance.getPosition();
+			ax = round(a.x, epsilon);
+			ay = round(a.y, epsilon);
+			az = round(a.z, epsilon);
+			bx = round(b.x, epsilon);
+			by = round(b.y, epsilon);
+			bz = round(b.z, epsilon);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (((((ax * 31 + ay) * 31 + az) * 31 + bx) * 31 + by) * 31 + bz);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof EdgeKey)) {
+				return false;
+			}
+			EdgeKey other = (EdgeKey) obj;
+			return ax == other.ax && ay == other.ay && az == other.az && bx == other.bx && by == other.by && bz == other.bz;
+		}
+	}
+}
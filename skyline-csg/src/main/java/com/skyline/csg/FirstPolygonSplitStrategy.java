@@ -0,0 +1,17 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+/**
+ * Partition on the plane of the first polygon. No heuristic is used to pick a
+ * good split.
+ *
+ * @see SplitStrategy#FIRST
+ * @author philippd
+ */
+public class FirstPolygonSplitStrategy implements SplitStrategy {
+
+	public Plane select(List<Polygon> polygons, CSGOptions options) {
+		return polygons.get(0).plane;
+	}
+}
@@ -0,0 +1,557 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+/**
+ * A polygon mesh stored as flat primitive arrays instead of {@link Polygon} and
+ * {@link Vertex} objects. Each polygon corner is its own vertex (nothing is
+ * shared between polygons, so flipping or splitting a polygon can't affect its
+ * neighbours), and the vertices of a polygon are stored contiguously:
+ *
+ * <ul>
+ * <li>positions, normals: 3 doubles per vertex.</li>
+ * <li>texCoords: 2 floats per vertex.</li>
+ * <li>polygonStarts: index of each polygon's first vertex. Polygon i's
+ * vertices run up to polygonStarts[i + 1].</li>
+ * <li>planes: 4 doubles per polygon (normal x, y, z, and w).</li>
+ * <li>shared: one flag per polygon, see {@link Polygon}.</li>
+ * </ul>
+ *
+ * The boolean operations work on this representation directly, with a BSP
+ * tree that is just as flat (see {@link FlatTree}), so a whole operation
+ * allocates a handful of arrays rather than objects per vertex. Like
+ * {@link CSG}, the operations never modify their operands. Use
+ * {@link #fromCSG(CSG)} and {@link #toCSG()} to convert to and from the object
+ * representation.
+ *
+ * The arrays returned by the getters are the live backing arrays, and may be
+ * longer than the mesh. Don't modify them.
+ *
+ * @author philippd
+ */
+public class FlatMesh {
+
+	double[] positions;
+	double[] normals;
+	float[] texCoords;
+	int vertexCount;
+
+	int[] polygonStarts;
+	double[] planes;
+	boolean[] shared;
+	int polygonCount;
+
+	// per-vertex classification, reused by split().
+	private int[] types = new int[16];
+	// how split() classifies vertices: with a scale-relative tolerance, or else
+	// within the position tolerance.
+	private boolean robust;
+	private double epsilon = CSG.EPSILON;
+
+	public FlatMesh() {
+		this(64, 16);
+	}
+
+	/**
+	 * @param vertexCapacity
+	 * @param polygonCapacity
+	 *            initial sizes. The mesh grows as needed.
+	 */
+	public FlatMesh(int vertexCapacity, int polygonCapacity) {
+		vertexCapacity = Math.max(vertexCapacity, 4);
+		polygonCapacity = Math.max(polygonCapacity, 4);
+		positions = new double[vertexCapacity * 3];
+		normals = new double[vertexCapacity * 3];
+		texCoords = new float[vertexCapacity * 2];
+		polygonStarts = new int[polygonCapacity + 1];
+		planes = new double[polygonCapacity * 4];
+		shared = new boolean[polygonCapacity];
+	}
+
+	/**
+	 * @param csg
+	 * @return a flat copy of all of `csg`'s polygons.
+	 */
+	public static FlatMesh fromCSG(CSG csg) {
+		List<Polygon> polygons = csg.getPolygons();
+		int vertices = 0;
+		for (Polygon p : polygons) {
+			vertices += p.vertices.size();
+		}
+		FlatMesh mesh = new FlatMesh(vertices, polygons.size());
+		for (Polygon p : polygons) {
+			for (Vertex v : p.vertices) {
+				mesh.addVertex(v.pos.x, v.pos.y, v.pos.z, v.normal.x, v.normal.y, v.normal.z, v.tex.x, v.tex.y);
+			}
+			Plane plane = p.plane;
+			mesh.closePolygon(plane.normal.x, plane.normal.y, plane.normal.z, plane.w, p.shared);
+		}
+		return mesh;
+	}
+
+	/**
+	 * @return a new CSG with a {@link Polygon} for each polygon in this mesh.
+	 */
+	public CSG toCSG() {
+		List<Polygon> polygons = new ArrayList<Polygon>(polygonCount);
+		for (int p = 0; p < polygonCount; p++) {
+			int end = end(p);
+			List<Vertex> vertices = new ArrayList<Vertex>(end - polygonStarts[p]);
+			for (int v = polygonStarts[p]; v < end; v++) {
+				vertices.add(new Vertex(new Vector3d(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2]),
+						new Vector3d(normals[v * 3], normals[v * 3 + 1], normals[v * 3 + 2]),
+						new TexCoord2f(texCoords[v * 2], texCoords[v * 2 + 1])));
+			}
+			Plane plane = new Plane(new Vector3d(planes[p * 4], planes[p * 4 + 1], planes[p * 4 + 2]), planes[p * 4 + 3]);
+			polygons.add(new Polygon(vertices, shared[p], plane));
+		}
+		return CSG.fromPolygons(polygons);
+	}
+
+	/**
+	 * Add a vertex to the polygon under construction. Call
+	 * {@link #addPolygon(boolean)} once all of its vertices have been added.
+	 *
+	 * @return the index of the new vertex.
+	 */
+	public int addVertex(double x, double y, double z, double nx, double ny, double nz, float u, float v) {
+		ensureVertexCapacity(1);
+		int i = vertexCount++;
+		positions[i * 3] = x;
+		positions[i * 3 + 1] = y;
+		positions[i * 3 + 2] = z;
+		normals[i * 3] = nx;
+		normals[i * 3 + 1] = ny;
+		normals[i * 3 + 2] = nz;
+		texCoords[i * 2] = u;
+		texCoords[i * 2 + 1] = v;
+		return i;
+	}
+
+	/**
+	 * Finish a polygon out of the vertices added since the last one. Its plane
+	 * is computed from the first three, which must be in CCW order.
+	 *
+	 * @param shared
+	 * @return the index of the new polygon.
+	 */
+	public int addPolygon(boolean shared) {
+		int a = polygonStarts[polygonCount];
+		assert vertexCount - a >= 3 : "A polygon needs at least 3 vertices.";
+		double[] pos = positions;
+		double bx = pos[a * 3 + 3] - pos[a * 3], by = pos[a * 3 + 4] - pos[a * 3 + 1], bz = pos[a * 3 + 5] - pos[a * 3 + 2];
+		double cx = pos[a * 3 + 6] - pos[a * 3], cy = pos[a * 3 + 7] - pos[a * 3 + 1], cz = pos[a * 3 + 8] - pos[a * 3 + 2];
+		double nx = by * cz - bz * cy, ny = bz * cx - bx * cz, nz = bx * cy - by * cx;
+		double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+		nx /= length;
+		ny /= length;
+		nz /= length;
+		return closePolygon(nx, ny, nz, nx * pos[a * 3] + ny * pos[a * 3 + 1] + nz * pos[a * 3 + 2], shared);
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public int getPolygonCount() {
+		return polygonCount;
+	}
+
+	/**
+	 * @return the index of `polygon`'s first vertex.
+	 */
+	public int getPolygonStart(int polygon) {
+		return polygonStarts[polygon];
+	}
+
+	/**
+	 * @return the number of vertices in `polygon`.
+	 */
+	public int getPolygonSize(int polygon) {
+		return end(polygon) - polygonStarts[polygon];
+	}
+
+	public boolean isShared(int polygon) {
+		return shared[polygon];
+	}
+
+	public double[] getPositions() {
+		return positions;
+	}
+
+	public double[] getNormals() {
+		return normals;
+	}
+
+	public float[] getTexCoords() {
+		return texCoords;
+	}
+
+	public double[] getPlanes() {
+		return planes;
+	}
+
+	/**
+	 * @return the axis-aligned bounds of all vertices.
+	 */
+	public BoundingBox getBounds() {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < vertexCount * 3; i += 3) {
+			minX = Math.min(minX, positions[i]);
+			minY = Math.min(minY, positions[i + 1]);
+			minZ = Math.min(minZ, positions[i + 2]);
+			maxX = Math.max(maxX, positions[i]);
+			maxY = Math.max(maxY, positions[i + 1]);
+			maxZ = Math.max(maxZ, positions[i + 2]);
+		}
+		return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Same as {@link CSG#union(CSG)}.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public FlatMesh union(FlatMesh other) {
+		return union(other, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link CSG#union(CSG, CSGOptions)}, with the tolerance and
+	 * robust mode of `options`.
+	 *
+	 * @param other
+	 * @param options
+	 * @return
+	 */
+	public FlatMesh union(FlatMesh other, CSGOptions options) {
+		double epsilon = options.effectiveTolerance().getPosition();
+		if (this.polygonCount == 0) {
+			return other;
+		} else if (other.polygonCount == 0) {
+			return this;
+		}
+		FlatMesh work = working(other, options);
+		if (!this.getBounds().intersects(other.getBounds(), epsilon)) {
+			// disjoint. Nothing to clip.
+			return work;
+		}
+		FlatTree a = new FlatTree(work, IntList.range(0, this.polygonCount));
+		FlatTree b = new FlatTree(work, IntList.range(this.polygonCount, work.polygonCount));
+		a.clipTo(b);
+		b.clipTo(a);
+		b.invert();
+		b.clipTo(a);
+		b.invert();
+		a.build(b.allPolygons());
+		return work.extract(a.allPolygons());
+	}
+
+	/**
+	 * Same as {@link CSG#subtract(CSG)}.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public FlatMesh subtract(FlatMesh other) {
+		return subtract(other, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link CSG#subtract(CSG, CSGOptions)}, with the tolerance and
+	 * robust mode of `options`.
+	 *
+	 * @param other
+	 * @param options
+	 * @return
+	 */
+	public FlatMesh subtract(FlatMesh other, CSGOptions options) {
+		double epsilon = options.effectiveTolerance().getPosition();
+		if (this.polygonCount == 0 || other.polygonCount == 0 || !this.getBounds().intersects(other.getBounds(), epsilon)) {
+			return this;
+		}
+		FlatMesh work = working(other, options);
+		FlatTree a = new FlatTree(work, IntList.range(0, this.polygonCount));
+		FlatTree b = new FlatTree(work, IntList.range(this.polygonCount, work.polygonCount));
+		a.invert();
+		a.clipTo(b);
+		b.clipTo(a);
+		b.invert();
+		b.clipTo(a);
+		b.invert();
+		a.build(b.allPolygons());
+		a.invert();
+		return work.extract(a.allPolygons());
+	}
+
+	/**
+	 * Same as {@link CSG#intersect(CSG)}.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public FlatMesh intersect(FlatMesh other) {
+		return intersect(other, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link CSG#intersect(CSG, CSGOptions)}, with the tolerance and
+	 * robust mode of `options`.
+	 *
+	 * @param other
+	 * @param options
+	 * @return
+	 */
+	public FlatMesh intersect(FlatMesh other, CSGOptions options) {
+		double epsilon = options.effectiveTolerance().getPosition();
+		if (this.polygonCount == 0) {
+			return other; // intersection with the universe.
+		} else if (other.polygonCount == 0) {
+			return this; // intersection with the universe.
+		} else if (!this.getBounds().intersects(other.getBounds(), epsilon)) {
+			return new FlatMesh();
+		}
+		FlatMesh work = working(other, options);
+		FlatTree a = new FlatTree(work, IntList.range(0, this.polygonCount));
+		FlatTree b = new FlatTree(work, IntList.range(this.polygonCount, work.polygonCount));
+		a.invert();
+		b.clipTo(a);
+		b.invert();
+		a.clipTo(b);
+		b.clipTo(a);
+		a.build(b.allPolygons());
+		a.invert();
+		return work.extract(a.allPolygons());
+	}
+
+	/**
+	 * @return a copy of this mesh followed by `other`'s polygons, for the
+	 *         boolean operations to split and flip as they please.
+	 */
+	private FlatMesh working(FlatMesh other, CSGOptions options) {
+		int vertices = this.vertexCount + other.vertexCount;
+		int polygons = this.polygonCount + other.polygonCount;
+		// leave some room for the fragments.
+		FlatMesh work = new FlatMesh(vertices + vertices / 2, polygons + polygons / 2);
+		work.append(this);
+		work.append(other);
+		work.robust = options.isRobust();
+		work.epsilon = options.effectiveTolerance().getPosition();
+		return work;
+	}
+
+	private void append(FlatMesh other) {
+		ensureVertexCapacity(other.vertexCount);
+		ensurePolygonCapacity(other.polygonCount);
+		System.arraycopy(other.positions, 0, positions, vertexCount * 3, other.vertexCount * 3);
+		System.arraycopy(other.normals, 0, normals, vertexCount * 3, other.vertexCount * 3);
+		System.arraycopy(other.texCoords, 0, texCoords, vertexCount * 2, other.vertexCount * 2);
+		for (int p = 0; p < other.polygonCount; p++) {
+			polygonStarts[polygonCount + p] = vertexCount + other.polygonStarts[p];
+		}
+		System.arraycopy(other.planes, 0, planes, polygonCount * 4, other.polygonCount * 4);
+		System.arraycopy(other.shared, 0, shared, polygonCount, other.polygonCount);
+		vertexCount += other.vertexCount;
+		polygonCount += other.polygonCount;
+		polygonStarts[polygonCount] = vertexCount;
+	}
+
+	/**
+	 * @return a new, compact mesh made of the given polygons of this one.
+	 */
+	FlatMesh extract(IntList polygons) {
+		int vertices = 0;
+		for (int i = 0; i < polygons.size(); i++) {
+			vertices += getPolygonSize(polygons.get(i));
+		}
+		FlatMesh mesh = new FlatMesh(vertices, polygons.size());
+		for (int i = 0; i < polygons.size(); i++) {
+			int p = polygons.get(i);
+			int start = polygonStarts[p], count = end(p) - start;
+			System.arraycopy(positions, start * 3, mesh.positions, mesh.vertexCount * 3, count * 3);
+			System.arraycopy(normals, start * 3, mesh.normals, mesh.vertexCount * 3, count * 3);
+			System.arraycopy(texCoords, start * 2, mesh.texCoords, mesh.vertexCount * 2, count * 2);
+			mesh.vertexCount += count;
+			mesh.closePolygon(planes[p * 4], planes[p * 4 + 1], planes[p * 4 + 2], planes[p * 4 + 3], shared[p]);
+		}
+		return mesh;
+	}
+
+	/**
+	 * Reverse the winding of `polygon`, and negate its plane and normals.
+	 */
+	void flip(int polygon) {
+		int start = polygonStarts[polygon], end = end(polygon);
+		for (int i = start, j = end - 1; i < j; i++, j--) {
+			for (int k = 0; k < 3; k++) {
+				double tmp = positions[i * 3 + k];
+				positions[i * 3 + k] = positions[j * 3 + k];
+				positions[j * 3 + k] = tmp;
+				tmp = normals[i * 3 + k];
+				normals[i * 3 + k] = normals[j * 3 + k];
+				normals[j * 3 + k] = tmp;
+			}
+			for (int k = 0; k < 2; k++) {
+				float tmp = texCoords[i * 2 + k];
+				texCoords[i * 2 + k] = texCoords[j * 2 + k];
+				texCoords[j * 2 + k] = tmp;
+			}
+		}
+		for (int i = start * 3; i < end * 3; i++) {
+			normals[i] = -normals[i];
+		}
+		for (int i = polygon * 4; i < polygon * 4 + 4; i++) {
+			planes[i] = -planes[i];
+		}
+	}
+
+	/**
+	 * Same as {@link Plane#splitPolygon(Polygon, List, List, List, List)}, for
+	 * the plane (nx, ny, nz, w). Fragments are added to the end of this mesh,
+	 * and keep the plane of the polygon they were split from.
+	 */
+	void split(double nx, double ny, double nz, double w, int polygon, IntList coplanarFront, IntList coplanarBack, IntList front, IntList back) {
+		int start = polygonStarts[polygon], end = end(polygon), count = end - start;
+		if (types.length < count) {
+			types = new int[Math.max(count, types.length * 2)];
+		}
+		int polygonType = Plane.COPLANAR;
+		// number of vertices in the front and back fragments, if we split.
+		int frontCount = 0, backCount = 0;
+		for (int i = 0; i < count; i++) {
+			int v = (start + i) * 3;
+			int type;
+			if (robust) {
+				type = RelativeClassifier.classify(nx, ny, nz, w, positions[v], positions[v + 1], positions[v + 2]);
+			} else {
+				double t = nx * positions[v] + ny * positions[v + 1] + nz * positions[v + 2] - w;
+				type = (t < -epsilon) ? Plane.BACK : (t > epsilon) ? Plane.FRONT : Plane.COPLANAR;
+			}
+			polygonType |= type;
+			types[i] = type;
+		}
+
+		switch (polygonType) {
+		case Plane.COPLANAR:
+			(nx * planes[polygon * 4] + ny * planes[polygon * 4 + 1] + nz * planes[polygon * 4 + 2] > 0 ? coplanarFront : coplanarBack).add(polygon);
+			break;
+		case Plane.FRONT:
+			front.add(polygon);
+			break;
+		case Plane.BACK:
+			back.add(polygon);
+			break;
+		case Plane.SPANNING:
+			for (int i = 0; i < count; i++) {
+				int ti = types[i], tj = types[(i + 1) % count];
+				if (ti != Plane.BACK)
+					frontCount++;
+				if (ti != Plane.FRONT)
+					backCount++;
+				if ((ti | tj) == Plane.SPANNING) {
+					frontCount++;
+					backCount++;
+				}
+			}
+			if (frontCount >= 3) {
+				front.add(addFragment(nx, ny, nz, w, polygon, Plane.BACK));
+			}
+			if (backCount >= 3) {
+				back.add(addFragment(nx, ny, nz, w, polygon, Plane.FRONT));
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Append the part of spanning `polygon` that isn't on the `skip` side of
+	 * the plane.
+	 *
+	 * @return the index of the new polygon.
+	 */
+	private int addFragment(double nx, double ny, double nz, double w, int polygon, int skip) {
+		int start = polygonStarts[polygon], count = end(polygon) - start;
+		// at most one extra vertex per edge.
+		ensureVertexCapacity(count * 2);
+		for (int i = 0; i < count; i++) {
+			int j = (i + 1) % count;
+			int ti = types[i], tj = types[j];
+			if (ti != skip) {
+				copyVertex(start + i);
+			}
+			if ((ti | tj) == Plane.SPANNING) {
+				int vi = (start + i) * 3, vj = (start + j) * 3;
+				double dx = positions[vj] - positions[vi], dy = positions[vj + 1] - positions[vi + 1], dz = positions[vj + 2] - positions[vi + 2];
+				double t = (w - (nx * positions[vi] + ny * positions[vi + 1] + nz * positions[vi + 2])) / (nx * dx + ny * dy + nz * dz);
+				if (robust) {
+					// the ends are strictly on either side, so the crossing
+					// is between them, whatever the rounding.
+					t = Math.max(0, Math.min(1, t));
+				}
+				interpolateVertex(start + i, start + j, t);
+			}
+		}
+		return closePolygon(planes[polygon * 4], planes[polygon * 4 + 1], planes[polygon * 4 + 2], planes[polygon * 4 + 3], shared[polygon]);
+	}
+
+	private void copyVertex(int v) {
+		int i = vertexCount++;
+		System.arraycopy(positions, v * 3, positions, i * 3, 3);
+		System.arraycopy(normals, v * 3, normals, i * 3, 3);
+		System.arraycopy(texCoords, v * 2, texCoords, i * 2, 2);
+	}
+
+	private void interpolateVertex(int a, int b, double t) {
+		int i = vertexCount++;
+		for (int k = 0; k < 3; k++) {
+			positions[i * 3 + k] = positions[a * 3 + k] + (positions[b * 3 + k] - positions[a * 3 + k]) * t;
+			normals[i * 3 + k] = normals[a * 3 + k] + (normals[b * 3 + k] - normals[a * 3 + k]) * t;
+		}
+		for (int k = 0; k < 2; k++) {
+			texCoords[i * 2 + k] = texCoords[a * 2 + k] + (texCoords[b * 2 + k] - texCoords[a * 2 + k]) * (float) t;
+		}
+	}
+
+	/**
+	 * Register the vertices added since the last polygon as a new polygon.
+	 */
+	private int closePolygon(double nx, double ny, double nz, double w, boolean shared) {
+		ensurePolygonCapacity(1);
+		int p = polygonCount++;
+		planes[p * 4] = nx;
+		planes[p * 4 + 1] = ny;
+		planes[p * 4 + 2] = nz;
+		planes[p * 4 + 3] = w;
+		this.shared[p] = shared;
+		polygonStarts[polygonCount] = vertexCount;
+		return p;
+	}
+
+	private int end(int polygon) {
+		return polygonStarts[polygon + 1];
+	}
+
+	private void ensureVertexCapacity(int extra) {
+		int needed = vertexCount + extra;
+		if (needed * 3 > positions.length) {
+			int capacity = Math.max(needed, positions.length / 3 * 2);
+			positions = Arrays.copyOf(positions, capacity * 3);
+			normals = Arrays.copyOf(normals, capacity * 3);
+			texCoords = Arrays.copyOf(texCoords, capacity * 2);
+		}
+	}
+
+	private void ensurePolygonCapacity(int extra) {
+		int needed = polygonCount + extra;
+		if (needed > shared.length) {
+			int capacity = Math.max(needed, shared.length * 2);
+			polygonStarts = Arrays.copyOf(polygonStarts, capacity + 1);
+			planes = Arrays.copyOf(planes, capacity * 4);
+			shared = Arrays.copyOf(shared, capacity);
+		}
+	}
+}
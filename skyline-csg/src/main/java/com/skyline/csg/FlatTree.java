@@ -0,0 +1,181 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+/**
+ * The BSP tree used by the {@link FlatMesh} boolean operations. Same algorithm
+ * as {@link Node}, but the whole tree lives in a few arrays indexed by node
+ * number, and polygons are indices into a {@link FlatMesh}. Node 0 is the
+ * root. Each node is split on the plane of the first polygon that reaches it.
+ *
+ * Like {@link Node}, nothing here recurses.
+ *
+ * @author philippd
+ */
+final class FlatTree {
+
+	private static final int NONE = -1;
+
+	private final FlatMesh mesh;
+
+	// 4 doubles per node: normal x, y, z, and w.
+	private double[] planes;
+	private int[] front, back;
+	private IntList[] polygons;
+	private int nodeCount;
+	private boolean hasPlane;
+
+	FlatTree(FlatMesh mesh, IntList polygons) {
+		this.mesh = mesh;
+		int capacity = Math.max(16, polygons.size());
+		this.planes = new double[capacity * 4];
+		this.front = new int[capacity];
+		this.back = new int[capacity];
+		this.polygons = new IntList[capacity];
+		addNode();
+		build(polygons);
+	}
+
+	/**
+	 * Same as {@link Node#invert()}.
+	 */
+	void invert() {
+		for (int node = 0; node < nodeCount; node++) {
+			IntList list = polygons[node];
+			for (int i = 0; i < list.size(); i++) {
+				mesh.flip(list.get(i));
+			}
+			for (int i = node * 4; i < node * 4 + 4; i++) {
+				planes[i] = -planes[i];
+			}
+			int tmp = front[node];
+			front[node] = back[node];
+			back[node] = tmp;
+		}
+	}
+
+	/**
+	 * Same as {@link Node#clipPolygons(List)}.
+	 */
+	IntList clipPolygons(IntList in) {
+		IntList retval = new IntList(in.size());
+		if (!hasPlane) {
+			retval.addAll(in);
+			return retval;
+		}
+		IntList nodeStack = new IntList();
+		Deque<IntList> listStack = new ArrayDeque<IntList>();
+		nodeStack.add(0);
+		listStack.push(in);
+		while (!nodeStack.isEmpty()) {
+			int node = nodeStack.removeLast();
+			IntList list = listStack.pop();
+			IntList f = new IntList(list.size()), b = new IntList(list.size());
+			double nx = planes[node * 4], ny = planes[node * 4 + 1], nz = planes[node * 4 + 2], w = planes[node * 4 + 3];
+			for (int i = 0; i < list.size(); i++) {
+				mesh.split(nx, ny, nz, w, list.get(i), f, b, f, b);
+			}
+			// back first, so the front is clipped (and output) first.
+			if (back[node] != NONE && !b.isEmpty()) {
+				nodeStack.add(back[node]);
+				listStack.push(b);
+			}
+			if (front[node] != NONE) {
+				if (!f.isEmpty()) {
+					nodeStack.add(front[node]);
+					listStack.push(f);
+				}
+			} else {
+				retval.addAll(f);
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Same as {@link Node#clipTo(Node)}.
+	 */
+	void clipTo(FlatTree bsp) {
+		for (int node = 0; node < nodeCount; node++) {
+			polygons[node] = bsp.clipPolygons(polygons[node]);
+		}
+	}
+
+	/**
+	 * @return all polygons in the tree.
+	 */
+	IntList allPolygons() {
+		IntList retval = new IntList();
+		for (int node = 0; node < nodeCount; node++) {
+			retval.addAll(polygons[node]);
+		}
+		return retval;
+	}
+
+	/**
+	 * Same as {@link Node#build(List)}, starting at the root.
+	 */
+	void build(IntList in) {
+		if (in.isEmpty()) {
+			return;
+		}
+		IntList nodeStack = new IntList();
+		Deque<IntList> listStack = new ArrayDeque<IntList>();
+		nodeStack.add(0);
+		listStack.push(in);
+		while (!nodeStack.isEmpty()) {
+			int node = nodeStack.removeLast();
+			IntList list = listStack.pop();
+			if (node == 0 && !hasPlane) {
+				setPlane(0, list.get(0));
+				hasPlane = true;
+			}
+			IntList f = new IntList(list.size()), b = new IntList(list.size());
+			double nx = planes[node * 4], ny = planes[node * 4 + 1], nz = planes[node * 4 + 2], w = planes[node * 4 + 3];
+			for (int i = 0; i < list.size(); i++) {
+				mesh.split(nx, ny, nz, w, list.get(i), polygons[node], polygons[node], f, b);
+			}
+			if (!b.isEmpty()) {
+				if (back[node] == NONE) {
+					int child = addNode();
+					back[node] = child;
+					setPlane(child, b.get(0));
+				}
+				nodeStack.add(back[node]);
+				listStack.push(b);
+			}
+			if (!f.isEmpty()) {
+				if (front[node] == NONE) {
+					int child = addNode();
+					front[node] = child;
+					setPlane(child, f.get(0));
+				}
+				nodeStack.add(front[node]);
+				listStack.push(f);
+			}
+		}
+	}
+
+	int nodeCount() {
+		return nodeCount;
+	}
+
+	private void setPlane(int node, int polygon) {
+		System.arraycopy(mesh.planes, polygon * 4, planes, node * 4, 4);
+	}
+
+	private int addNode() {
+		if (nodeCount == front.length) {
+			int capacity = nodeCount * 2;
+			planes = Arrays.copyOf(planes, capacity * 4);
+			front = Arrays.copyOf(front, capacity);
+			back = Arrays.copyOf(back, capacity);
+			polygons = Arrays.copyOf(polygons, capacity);
+		}
+		int node = nodeCount++;
+		front[node] = NONE;
+		back[node] = NONE;
+		polygons[node] = new IntList(4);
+		return node;
+	}
+}
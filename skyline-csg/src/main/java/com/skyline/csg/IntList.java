@@ -0,0 +1,65 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+/**
+ * A growable list of primitive ints, so lists of polygon and node indices
+ * don't box every element.
+ *
+ * @author philippd
+ */
+final class IntList {
+
+	private int[] data;
+	private int size;
+
+	IntList() {
+		this(16);
+	}
+
+	IntList(int capacity) {
+		data = new int[Math.max(capacity, 4)];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int get(int i) {
+		return data[i];
+	}
+
+	void add(int value) {
+		if (size == data.length) {
+			data = Arrays.copyOf(data, size * 2);
+		}
+		data[size++] = value;
+	}
+
+	int removeLast() {
+		return data[--size];
+	}
+
+	void addAll(IntList other) {
+		if (size + other.size > data.length) {
+			data = Arrays.copyOf(data, Math.max(size + other.size, size * 2));
+		}
+		System.arraycopy(other.data, 0, data, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * @return the ints from `start` (inclusive) to `end` (exclusive).
+	 */
+	static IntList range(int start, int end) {
+		IntList list = new IntList(end - start);
+		for (int i = start; i < end; i++) {
+			list.data[list.size++] = i;
+		}
+		return list;
+	}
+}
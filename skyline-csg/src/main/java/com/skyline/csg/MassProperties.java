@@ -0,0 +1,262 @@
+package com.skyline.csg;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+/**
+ * Volume, surface area, centroid, inertia tensor and bounds of a closed solid,
+ * at a density of 1. See {@link CSG#getMassProperties()}.
+ *
+ * Each polygon is split into a fan of triangles, and each triangle makes a
+ * tetrahedron with a reference point. The integrals over the tetrahedra are
+ * signed, so the parts outside the solid cancel out. The reference point is
+ * the first vertex rather than the origin, so solids far from the origin
+ * don't lose their precision to cancellation.
+ *
+ * Everything is summed in one pass over the polygons, with nothing allocated
+ * per polygon. With a pool, ranges of polygons are summed in parallel, and
+ * the sums are combined in the same order whichever threads run them, so the
+ * results don't depend on the pool.
+ *
+ * Immutable.
+ *
+ * @author philippd
+ */
+public final class MassProperties {
+
+	/**
+	 * The polygons summed per task by {@link CSG#getMassProperties()}. Each
+	 * polygon is only a few dozen multiplications, so smaller solids aren't
+	 * worth forking for.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	private final double volume;
+	private final double area;
+	private final Vector3d centroid;
+	private final Matrix3d inertia;
+	private final BoundingBox bounds;
+
+	private MassProperties(double volume, double area, Vector3d centroid, Matrix3d inertia, BoundingBox bounds) {
+		this.volume = volume;
+		this.area = area;
+		this.centroid = centroid;
+		this.inertia = inertia;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * @param polygons
+	 *            the surface of a closed solid.
+	 * @return the mass properties of the solid, summed on the calling thread.
+	 */
+	public static MassProperties of(List<Polygon> polygons) {
+		return of(polygons, new CSGOptions());
+	}
+
+	/**
+	 * Same as {@link #of(List)}. With a pool in `options`, and at least
+	 * {@link CSGOptions#getParallelThreshold()} polygons, ranges of that many
+	 * polygons are summed in parallel.
+	 */
+	public static MassProperties of(List<Polygon> polygons, CSGOptions options) {
+		int count = polygons.size();
+		if (count == 0) {
+			return new MassProperties(0, 0, new Vector3d(), new Matrix3d(), BoundingBox.EMPTY);
+		}
+		Vector3d reference = new Vector3d(polygons.get(0).vertices.get(0).pos);
+		Sums sums;
+		if (options.isParallel(count)) {
+			sums = options.invoke(new SumTask(polygons, 0, count, reference, options.getParallelThreshold()));
+		} else {
+			sums = new Sums();
+			sums.add(polygons, 0, count, reference.x, reference.y, reference.z);
+		}
+		return sums.toMassProperties(reference);
+	}
+
+	/**
+	 * @return the volume. Negative if the polygons face inwards.
+	 */
+	public double getVolume() {
+		return volume;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	/**
+	 * @return the center of mass. The origin if the volume is 0.
+	 */
+	public Vector3d getCentroid() {
+		return new Vector3d(centroid);
+	}
+
+	/**
+	 * @return the inertia tensor about the centroid, along the x, y and z
+	 *         axes. Scale it by the density for a solid of any other.
+	 */
+	public Matrix3d getInertia() {
+		return new Matrix3d(inertia);
+	}
+
+	public BoundingBox getBounds() {
+		return bounds;
+	}
+
+	public String toString() {
+		return String.format("{\"volume\": %g, \"area\": %g, \"centroid\": {\"x\": %g, \"y\": %g, \"z\": %g}}", volume, area, centroid.x, centroid.y,
+				centroid.z);
+	}
+
+	/**
+	 * The running sums over a range of polygons, relative to the reference
+	 * point, without the constant factors. See
+	 * {@link Sums#toMassProperties(Vector3d)} for what each one is.
+	 */
+	private static final class Sums {
+		double volume, area;
+		double x, y, z;
+		double xx, yy, zz, xy, yz, zx;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+		void add(List<Polygon> polygons, int from, int to, double rx, double ry, double rz) {
+			for (int i = from; i < to; i++) {
+				List<Vertex> vertices = polygons.get(i).vertices;
+				Vector3d first = vertices.get(0).pos;
+				double ax = first.x - rx, ay = first.y - ry, az = first.z - rz;
+				Vector3d second = vertices.get(1).pos;
+				double bx = second.x - rx, by = second.y - ry, bz = second.z - rz;
+				bound(first);
+				bound(second);
+				for (int j = 2; j < vertices.size(); j++) {
+					Vector3d pos = vertices.get(j).pos;
+					bound(pos);
+					double cx = pos.x - rx, cy = pos.y - ry, cz = pos.z - rz;
+
+					// six times the signed volume of the tetrahedron between
+					// the reference point and the triangle.
+					double det = ax * (by * cz - bz * cy) + ay * (bz * cx - bx * cz) + az * (bx * cy - by * cx);
+					volume += det;
+
+					// twice the area of the triangle.
+					double ux = bx - ax, uy = by - ay, uz = bz - az;
+					double vx = cx - ax, vy = cy - ay, vz = cz - az;
+					double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+					area += Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+					double sx = ax + bx + cx, sy = ay + by + cy, sz = az + bz + cz;
+					x += det * sx;
+					y += det * sy;
+					z += det * sz;
+					xx += det * (ax * ax + bx * bx + cx * cx + sx * sx);
+					yy += det * (ay * ay + by * by + cy * cy + sy * sy);
+					zz += det * (az * az + bz * bz + cz * cz + sz * sz);
+					xy += det * (ax * ay + bx * by + cx * cy + sx * sy);
+					yz += det * (ay * az + by * bz + cy * cz + sy * sz);
+					zx += det * (az * ax + bz * bx + cz * cx + sz * sx);
+
+					bx = cx;
+					by = cy;
+					bz = cz;
+				}
+			}
+		}
+
+		private void bound(Vector3d pos) {
+			minX = Math.min(minX, pos.x);
+			minY = Math.min(minY, pos.y);
+			minZ = Math.min(minZ, pos.z);
+			maxX = Math.max(maxX, pos.x);
+			maxY = Math.max(maxY, pos.y);
+			maxZ = Math.max(maxZ, pos.z);
+		}
+
+		void add(Sums other) {
+			volume += other.volume;
+			area += other.area;
+			x += other.x;
+			y += other.y;
+			z += other.z;
+			xx += other.xx;
+			yy += other.yy;
+			zz += other.zz;
+			xy += other.xy;
+			yz += other.yz;
+			zx += other.zx;
+			minX = Math.min(minX, other.minX);
+			minY = Math.min(minY, other.minY);
+			minZ = Math.min(minZ, other.minZ);
+			maxX = Math.max(maxX, other.maxX);
+			maxY = Math.max(maxY, other.maxY);
+			maxZ = Math.max(maxZ, other.maxZ);
+		}
+
+		/**
+		 * Over a tetrahedron between the reference point and a, b and c, with
+		 * det = a . (b x c): the volume is det / 6, the integral of x is
+		 * det * (ax + bx + cx) / 24, and the integral of x * y is det * (ax *
+		 * ay + bx * by + cx * cy + (ax + bx + cx) * (ay + by + cy)) / 120.
+		 */
+		MassProperties toMassProperties(Vector3d reference) {
+			double v = volume / 6;
+			Vector3d centroid = new Vector3d();
+			Matrix3d inertia = new Matrix3d();
+			if (v != 0) {
+				double cx = x / 24 / v, cy = y / 24 / v, cz = z / 24 / v;
+				// second moments, moved from the reference point to the
+				// centroid.
+				double mxx = xx / 120 - v * cx * cx, myy = yy / 120 - v * cy * cy, mzz = zz / 120 - v * cz * cz;
+				double mxy = xy / 120 - v * cx * cy, myz = yz / 120 - v * cy * cz, mzx = zx / 120 - v * cz * cx;
+				inertia.m00 = myy + mzz;
+				inertia.m11 = mzz + mxx;
+				inertia.m22 = mxx + myy;
+				inertia.m01 = inertia.m10 = -mxy;
+				inertia.m12 = inertia.m21 = -myz;
+				inertia.m02 = inertia.m20 = -mzx;
+				centroid.set(cx + reference.x, cy + reference.y, cz + reference.z);
+			}
+			return new MassProperties(v, area / 2, centroid, inertia, new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ));
+		}
+	}
+
+	/**
+	 * Sums a range of polygons, in halves, until they're no bigger than
+	 * `threshold`. The halves are combined left to right.
+	 */
+	private static class SumTask extends RecursiveTask<Sums> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Polygon> polygons;
+		private final int from, to;
+		private final Vector3d reference;
+		private final int threshold;
+
+		SumTask(List<Polygon> polygons, int from, int to, Vector3d reference, int threshold) {
+			this.polygons = polygons;
+			this.from = from;
+			this.to = to;
+			this.reference = reference;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected Sums compute() {
+			if (to - from <= threshold) {
+				Sums retval = new Sums();
+				retval.add(polygons, from, to, reference.x, reference.y, reference.z);
+				return retval;
+			}
+			int mid = (from + to) >>> 1;
+			SumTask second = new SumTask(polygons, mid, to, reference, threshold);
+			second.fork();
+			Sums retval = new SumTask(polygons, from, mid, reference, threshold).compute();
+			retval.add(second.join());
+			return retval;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.skyline.csg;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import javax.vecmath.*;
 
@@ -11,6 +12,17 @@ import javax.vecmath.*;
  * the front and/or back subtrees. This is not a leafy BSP tree since there is
  * no distinction between internal and leaf nodes.
  * 
+ * None of the traversals recurse. They all use an explicit stack (or a flat
+ * list of nodes, where the visiting order doesn't matter), so that degenerate
+ * inputs, which produce very deep trees, can't overflow the thread stack.
+ * Output is the same as csg.js' recursive implementation, including polygon
+ * order.
+ * 
+ * If the node's {@link CSGOptions} has a pool, building the tree and clipping
+ * large batches of polygons are split into fork/join tasks. The front and back
+ * subtrees share no state, so they can be built independently, and clipping
+ * results are joined in the same order as the serial version.
+ * 
  * ported from http://evanw.github.io/csg.js/
  * 
  * @author philippd
@@ -21,16 +33,22 @@ public class Node {
 	private List<Polygon> polygons = new ArrayList<Polygon>();
 	private Plane plane;
 	private Node front, back;
+	private CSGOptions options;
 
-	public Node(List<Polygon> polygons){
+	public Node(List<Polygon> polygons, CSGOptions options){
 		this.plane=null;
 		this.front=null;
 		this.back=null;
+		this.options = options;
 		this.polygons = new ArrayList<Polygon>();
 		if(polygons!=null && polygons.size()>0){
 			this.build(polygons);
 		}
 	}
+
+	public Node(List<Polygon> polygons){
+		this(polygons, new CSGOptions());
+	}
 	
 	public Node() {
 		this(null);
@@ -40,23 +58,31 @@ public class Node {
 	 * @verified
 	 */
 	public Node clone() {
-		Node node = new Node();
-		if (this.plane != null) {
-			node.plane = this.plane.clone();
-		}
-		if (this.front != null) {
-			node.front = this.front.clone();
-		}
-		if (this.back != null) {
-			node.back = this.back.clone();
-		}
-		if (this.polygons != null && this.polygons.size() > 0) {
-			node.polygons = new ArrayList<Polygon>();
-			for (Polygon p : this.polygons) {
-				node.polygons.add(p.clone());
+		Node root = new Node(null, this.options);
+		Deque<Node[]> stack = new ArrayDeque<Node[]>();
+		stack.push(new Node[] { this, root });
+		while (!stack.isEmpty()) {
+			Node[] pair = stack.pop();
+			Node src = pair[0], dst = pair[1];
+			if (src.plane != null) {
+				dst.plane = src.plane.clone();
+			}
+			if (src.front != null) {
+				dst.front = new Node(null, src.options);
+				stack.push(new Node[] { src.front, dst.front });
+			}
+			if (src.back != null) {
+				dst.back = new Node(null, src.options);
+				stack.push(new Node[] { src.back, dst.back });
+			}
+			if (src.polygons != null && src.polygons.size() > 0) {
+				dst.polygons = new ArrayList<Polygon>(src.polygons.size());
+				for (Polygon p : src.polygons) {
+					dst.polygons.add(p.clone());
+				}
 			}
 		}
-		return node;
+		return root;
 	}
 
 	/**
@@ -65,25 +91,26 @@ public class Node {
 	 * @verified
 	 */
 	public void invert() {
-
-		for (Polygon p : this.polygons) {
-			p.flip();
-		}
-		this.plane.flip();
-		if (this.front != null) {
-			this.front.invert();
-		}
-		if (this.back != null) {
-			this.back.invert();
+		for (Node node : allNodes()) {
+			for (Polygon p : node.polygons) {
+				p.flip();
+			}
+			if (node.plane != null) {
+				node.plane.flip();
+			}
+			Node temp = node.front;
+			node.front = node.back;
+			node.back = temp;
 		}
-		Node temp = this.front;
-		this.front = this.back;
-		this.back = temp;
 	}
 
 	/**
-	 * Recursively remove all polygons in `polygons` that are inside this BSP
-	 * tree.
+	 * Remove all polygons in `polygons` that are inside this BSP tree.
+	 * 
+	 * Polygons that end up in front of a node with no front child are kept,
+	 * polygons that end up behind a node with no back child are dropped.
+	 * Subtrees are visited front first, so the result is in the same order as
+	 * csg.js' recursive version.
 	 * 
 	 * @param polygons
 	 * @return
@@ -91,21 +118,45 @@ public class Node {
 	 */
 	public List<Polygon> clipPolygons(List<Polygon> polygons){
 		if(this.plane==null) return new ArrayList<Polygon>(polygons);
-		List<Polygon> front = new ArrayList<Polygon>();
-		List<Polygon> back = new ArrayList<Polygon>();
-		for (Polygon p : polygons) {
-			this.plane.splitPolygon(p, front, back, front, back);
+		if (this.options.isParallel(polygons.size())) {
+			return this.options.invoke(new ClipTask(this, polygons));
+		}
+		List<Polygon> retval = new ArrayList<Polygon>();
+		clipPolygons(this, polygons, retval);
+		return retval;
+	}
+
+	/**
+	 * Serial clipping. Appends the polygons in `polygons` that are outside the
+	 * subtree rooted at `root` to `retval`.
+	 */
+	private static void clipPolygons(Node root, List<Polygon> polygons, List<Polygon> retval) {
+		CSGOptions options = root.options;
+		Deque<Frame> stack = new ArrayDeque<Frame>();
+		stack.push(new Frame(root, polygons));
+		while (!stack.isEmpty()) {
+			Frame frame = stack.pop();
+			Node node = frame.node;
+			if (node.plane == null) {
+				retval.addAll(frame.polygons);
+				continue;
+			}
+			List<Polygon> front = new ArrayList<Polygon>();
+			List<Polygon> back = new ArrayList<Polygon>();
+			for (Polygon p : frame.polygons) {
+				node.plane.splitPolygon(p, front, back, front, back, options);
+			}
+			// push back first, so the front subtree is handled (and its
+			// polygons emitted) first.
+			if (node.back != null && back.size() > 0)
+				stack.push(new Frame(node.back, back));
+			if (node.front != null) {
+				if (front.size() > 0)
+					stack.push(new Frame(node.front, front));
+			} else {
+				retval.addAll(front);
+			}
 		}
-		if (this.front != null) 
-			front = this.front.clipPolygons(front);
-		
-		if (this.back != null)
-			back = this.back.clipPolygons(back);
-		else
-			back = new ArrayList<Polygon>();
-		
-		front.addAll(back);
-		return front;
 	}
 
 	/**
@@ -117,11 +168,20 @@ public class Node {
 	 * @verified
 	 */
 	public void clipTo(Node bsp) {
-		this.polygons = bsp.clipPolygons(this.polygons);
-		if (this.front != null)
-			this.front.clipTo(bsp);
-		if (this.back != null)
-			this.back.clipTo(bsp);
+		List<Node> nodes = allNodes();
+		if (bsp.options.getPool() != null && nodes.size() > 1) {
+			int count = 0;
+			for (Node node : nodes) {
+				count += node.polygons.size();
+			}
+			if (bsp.options.isParallel(count)) {
+				bsp.options.invoke(new ClipToTask(bsp, nodes, 0, nodes.size(), count));
+				return;
+			}
+		}
+		for (Node node : nodes) {
+			node.polygons = bsp.clipPolygons(node.polygons);
+		}
 	}
 
 	/**
@@ -131,19 +191,43 @@ public class Node {
 	 * @verified
 	 */
 	public List<Polygon> allPolygons() {
-		List<Polygon> retval = new ArrayList<Polygon>(this.polygons);
-		if (this.front != null)
-			retval.addAll(this.front.allPolygons());
-		if (this.back != null)
-			retval.addAll(this.back.allPolygons());
+		List<Polygon> retval = new ArrayList<Polygon>();
+		for (Node node : allNodes()) {
+			retval.addAll(node.polygons);
+		}
 		return retval;
 	}
 
+	/**
+	 * Take the polygons that don't touch `box` out of this tree. The planes
+	 * stay where they are, so the tree still classifies space exactly as
+	 * before; only the removed polygons skip any further clipping.
+	 *
+	 * @param box
+	 * @return the removed polygons.
+	 */
+	List<Polygon> removePolygonsOutside(BoundingBox box) {
+		List<Polygon> removed = new ArrayList<Polygon>();
+		double epsilon = options.effectiveTolerance().getPosition();
+		for (Node node : allNodes()) {
+			List<Polygon> kept = new ArrayList<Polygon>(node.polygons.size());
+			for (Polygon p : node.polygons) {
+				if (box.intersects(p, epsilon)) {
+					kept.add(p);
+				} else {
+					removed.add(p);
+				}
+			}
+			node.polygons = kept;
+		}
+		return removed;
+	}
+
 	/**
 	 * Build a BSP tree out of `polygons`. When called on an existing tree, the
 	 * new polygons are filtered down to the bottom of the tree and become new
-	 * nodes there. Each set of polygons is partitioned using the first polygon
-	 * in the set. (no heuristic is used to pick a good split).
+	 * nodes there. Each set of polygons is partitioned on the plane picked by
+	 * the {@link SplitStrategy} in this node's {@link CSGOptions}.
 	 * 
 	 * @param polygons
 	 * @verified
@@ -152,73 +236,478 @@ public class Node {
 		if (polygons == null || polygons.size() == 0)
 			return;
 
+		if (this.options.isParallel(polygons.size())) {
+			this.options.invoke(new BuildTask(this, polygons));
+			return;
+		}
+
+		Deque<Frame> stack = new ArrayDeque<Frame>();
+		stack.push(new Frame(this, polygons));
+		while (!stack.isEmpty()) {
+			Frame frame = stack.pop();
+			Node node = frame.node;
+			List<Polygon> front = new ArrayList<Polygon>();
+			List<Polygon> back = new ArrayList<Polygon>();
+			node.partition(frame.polygons, front, back);
+			if (back.size() > 0) {
+				stack.push(new Frame(node.back, back));
+			}
+			if (front.size() > 0) {
+				stack.push(new Frame(node.front, front));
+			}
+		}
+	}
+
+	/**
+	 * One step of {@link #build(List)}: pick this node's plane if it doesn't
+	 * have one yet, keep the coplanar polygons, and sort the rest into `front`
+	 * and `back`. Creates the child nodes that will receive them.
+	 */
+	private void partition(List<Polygon> polygons, List<Polygon> front, List<Polygon> back) {
 		if (this.plane == null)
-			this.plane = polygons.get(0).plane.clone();
+			this.plane = this.options.getSplitStrategy().select(polygons, this.options).clone();
 
 		if (this.polygons == null)
 			this.polygons = new ArrayList<Polygon>();
 
-		List<Polygon> front = new ArrayList<Polygon>();
-		List<Polygon> back = new ArrayList<Polygon>();
 		for (Polygon p : polygons) {
-			this.plane.splitPolygon(p, this.polygons, this.polygons, front, back);
+			this.plane.splitPolygon(p, this.polygons, this.polygons, front, back, this.options);
 		}
-		if (front.size() > 0) {
-			if (this.front == null)
-				this.front = new Node();
-			this.front.build(front);
+		if (front.size() > 0 && this.front == null)
+			this.front = new Node(null, this.options);
+		if (back.size() > 0 && this.back == null)
+			this.back = new Node(null, this.options);
+	}
+
+	/**
+	 * @return the number of nodes on the longest path from this node to a
+	 *         leaf, including this node.
+	 */
+	public int depth() {
+		int retval = 0;
+		Deque<Node> stack = new ArrayDeque<Node>();
+		Deque<Integer> depths = new ArrayDeque<Integer>();
+		stack.push(this);
+		depths.push(1);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			int depth = depths.pop();
+			retval = Math.max(retval, depth);
+			if (node.front != null) {
+				stack.push(node.front);
+				depths.push(depth + 1);
+			}
+			if (node.back != null) {
+				stack.push(node.back);
+				depths.push(depth + 1);
+			}
 		}
-		if (back.size() > 0) {
-			if (this.back == null)
-				this.back = new Node();
-			this.back.build(back);
+		return retval;
+	}
+
+	/**
+	 * @return the number of nodes in this BSP tree, including this node.
+	 */
+	public int nodeCount() {
+		return allNodes().size();
+	}
+
+	/**
+	 * Walks down the tree like {@link #clipPolygons(List)} would with a
+	 * polygon at the point: it's inside if it ends up behind a node with no
+	 * back subtree. A point on a plane goes down both sides, so points on the
+	 * surface count as inside.
+	 *
+	 * @param epsilon
+	 *            how far from a plane a point may be and still be on it.
+	 * @return true if the point is inside the solid this tree was built from,
+	 *         or on its surface.
+	 */
+	boolean contains(double x, double y, double z, double epsilon) {
+		Deque<Node> stack = null;
+		Node node = this;
+		while (true) {
+			if (node.plane != null) {
+				Vector3d n = node.plane.normal;
+				double t = n.x * x + n.y * y + n.z * z - node.plane.w;
+				if (t >= -epsilon && t <= epsilon) {
+					if (node.back == null) {
+						return true;
+					} else if (node.front != null) {
+						if (stack == null) {
+							stack = new ArrayDeque<Node>();
+						}
+						stack.push(node.front);
+					}
+					node = node.back;
+					continue;
+				}
+				Node next = t > 0 ? node.front : node.back;
+				if (next != null) {
+					node = next;
+					continue;
+				} else if (t < 0) {
+					return true;
+				}
+			}
+			// outside, as far as this path goes.
+			if (stack == null || stack.isEmpty()) {
+				return false;
+			}
+			node = stack.pop();
 		}
+	}
 
+	/**
+	 * Walks the ray's segments through the tree, nearest first, splitting them
+	 * where they cross a node's plane. The first segment to end up behind a
+	 * node with no back subtree starts where the ray enters the solid. A ray
+	 * lying in a plane stays in front of it, so rays grazing a face don't hit
+	 * it.
+	 *
+	 * @param normal
+	 *            if not null, and the ray hits, set to the normal of the
+	 *            surface where it enters, facing the ray. Zero if the ray
+	 *            starts inside.
+	 * @param epsilon
+	 *            how far from a plane a point may be and still be on it.
+	 * @return t of the first point o + t * d with t &gt;= 0 inside the solid
+	 *         this tree was built from, or {@link Double#POSITIVE_INFINITY} if
+	 *         there is none.
+	 */
+	double raycast(double ox, double oy, double oz, double dx, double dy, double dz, double epsilon, Vector3d normal) {
+		Deque<Segment> stack = null;
+		Node node = this;
+		double tmin = 0, tmax = Double.POSITIVE_INFINITY;
+		// the plane crossed at tmin, or null at the origin.
+		Plane entered = null;
+		while (true) {
+			boolean solid;
+			if (node == null) {
+				// a solid leaf, from the stack.
+				solid = true;
+			} else if (node.plane == null) {
+				solid = false;
+			} else {
+				Vector3d n = node.plane.normal;
+				double s0 = n.x * ox + n.y * oy + n.z * oz - node.plane.w;
+				double ds = n.x * dx + n.y * dy + n.z * dz;
+				double start = s0 + tmin * ds;
+				boolean front;
+				if (Math.abs(start) <= epsilon) {
+					// starts on the plane, and stays on the side it heads for.
+					front = ds >= 0;
+					if (!front) {
+						entered = node.plane;
+					}
+				} else {
+					front = start > 0;
+					if (front ? ds < 0 : ds > 0) {
+						double t = -s0 / ds;
+						if (t < tmax) {
+							// the far side. Without a front subtree it's
+							// empty, and needn't be walked.
+							if (front || node.front != null) {
+								if (stack == null) {
+									stack = new ArrayDeque<Segment>();
+								}
+								stack.push(new Segment(front ? node.back : node.front, t, tmax, node.plane));
+							}
+							tmax = t;
+						}
+					}
+				}
+				Node next = front ? node.front : node.back;
+				if (next != null) {
+					node = next;
+					continue;
+				}
+				solid = !front;
+			}
+			if (solid) {
+				if (normal != null) {
+					if (entered == null) {
+						normal.set(0, 0, 0);
+					} else {
+						normal.set(entered.normal);
+						if (normal.x * dx + normal.y * dy + normal.z * dz > 0) {
+							normal.negate();
+						}
+					}
+				}
+				return tmin;
+			}
+			// empty space, as far as this segment goes. The next one on the
+			// stack is the nearest left.
+			if (stack == null || stack.isEmpty()) {
+				return Double.POSITIVE_INFINITY;
+			}
+			Segment segment = stack.pop();
+			tmin = segment.tmin;
+			tmax = segment.tmax;
+			entered = segment.entered;
+			node = segment.node;
+		}
 	}
 
 	/**
-	 * Moves this Node, in place.
+	 * The part of a ray from `tmin` to `tmax` left to walk from `node`, or
+	 * through a solid leaf if `node` is null. See
+	 * {@link Node#raycast(double, double, double, double, double, double, double, Vector3d)}.
+	 */
+	private static final class Segment {
+		final Node node;
+		final double tmin, tmax;
+		final Plane entered;
+
+		Segment(Node node, double tmin, double tmax, Plane entered) {
+			this.node = node;
+			this.tmin = tmin;
+			this.tmax = tmax;
+			this.entered = entered;
+		}
+	}
+
+	/**
+	 * Moves this Node, in place. The polygons are moved copy on write (see
+	 * {@link Polygon#translate(Vector3d)}), so vertices shared with polygons
+	 * outside the tree stay where they are.
 	 * 
 	 * @param v
 	 */
 	public void translate(Vector3d v) {
-		if (this.plane != null)
-			this.plane.translate(v);
-		if (this.front != null)
-			this.front.translate(v);
-		if (this.back != null)
-			this.back.translate(v);
-		for (Polygon p : this.polygons) {
-			p.translate(v);
+		for (Node node : allNodes()) {
+			if (node.plane != null)
+				node.plane.translate(v);
+			for (Polygon p : node.polygons) {
+				p.translate(v);
+			}
 		}
 	}
 
 	/**
-	 * Rotate around the world origin (0,0,0)
+	 * Rotate around the world origin (0,0,0), copy on write like
+	 * {@link #translate(Vector3d)}.
 	 * 
 	 * @param rotation
 	 */
 	public void rotate(Quat4d rotation) {
-		if (this.plane != null)
-			this.plane.rotate(rotation);
-		if (this.front != null)
-			this.front.rotate(rotation);
-		if (this.back != null)
-			this.back.rotate(rotation);
-		for (Polygon p : this.polygons) {
-			p.rotate(rotation);
+		for (Node node : allNodes()) {
+			if (node.plane != null)
+				node.plane.rotate(rotation);
+			for (Polygon p : node.polygons) {
+				p.rotate(rotation);
+			}
 		}
 	}
 
+	/**
+	 * Scale along the world axes, copy on write like
+	 * {@link #translate(Vector3d)}.
+	 * 
+	 * @param v
+	 */
 	public void scale(Vector3d v) {
-		if (this.plane != null)
-			this.plane.scale(v);
-		if (this.front != null)
-			this.front.scale(v);
-		if (this.back != null)
-			this.back.scale(v);
-		for (Polygon p : this.polygons) {
-			p.scale(v);
+		for (Node node : allNodes()) {
+			if (node.plane != null)
+				node.plane.scale(v);
+			for (Polygon p : node.polygons) {
+				p.scale(v);
+			}
+		}
+	}
+
+	/**
+	 * @return every node in this tree, in pre-order (node, front subtree, back
+	 *         subtree).
+	 */
+	private List<Node> allNodes() {
+		List<Node> retval = new ArrayList<Node>();
+		Deque<Node> stack = new ArrayDeque<Node>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			retval.add(node);
+			if (node.back != null)
+				stack.push(node.back);
+			if (node.front != null)
+				stack.push(node.front);
+		}
+		return retval;
+	}
+
+	/**
+	 * Parallel version of {@link Node#clipPolygons(List)}. Walks down the tree
+	 * in a loop, forking off the back subtree whenever both sides have enough
+	 * polygons to be worth it, and carrying on with the front. Output is built
+	 * as (polygons kept along the way) + (front result) + (back results,
+	 * deepest first), which is the serial order.
+	 */
+	private static class ClipTask extends RecursiveTask<List<Polygon>> {
+		private static final long serialVersionUID = 1L;
+
+		private final Node root;
+		private final List<Polygon> polygons;
+
+		ClipTask(Node root, List<Polygon> polygons) {
+			this.root = root;
+			this.polygons = polygons;
+		}
+
+		@Override
+		protected List<Polygon> compute() {
+			CSGOptions options = root.options;
+			List<Polygon> retval = new ArrayList<Polygon>();
+			Deque<ClipTask> forked = new ArrayDeque<ClipTask>();
+			Node node = root;
+			List<Polygon> remaining = polygons;
+			while (node != null && remaining.size() > 0) {
+				if (node.plane == null) {
+					retval.addAll(remaining);
+					break;
+				}
+				if (!options.isParallel(remaining.size())) {
+					clipPolygons(node, remaining, retval);
+					break;
+				}
+				List<Polygon> front = new ArrayList<Polygon>();
+				List<Polygon> back = new ArrayList<Polygon>();
+				for (Polygon p : remaining) {
+					node.plane.splitPolygon(p, front, back, front, back, options);
+				}
+				if (node.front == null) {
+					// front is kept as is. carry on with the back.
+					retval.addAll(front);
+					node = node.back;
+					remaining = back;
+				} else if (!options.isParallel(front.size())) {
+					// not worth forking. Do the front now, and carry on with
+					// the back, rather than waiting on a back task (trees from
+					// convex solids are one long chain of back nodes).
+					if (front.size() > 0)
+						clipPolygons(node.front, front, retval);
+					node = node.back;
+					remaining = back;
+				} else {
+					if (node.back != null && back.size() > 0) {
+						ClipTask task = new ClipTask(node.back, back);
+						if (options.isParallel(back.size())) {
+							task.fork();
+						}
+						forked.push(task);
+					}
+					node = node.front;
+					remaining = front;
+				}
+			}
+			while (!forked.isEmpty()) {
+				ClipTask task = forked.pop();
+				// tasks that were too small to fork are run here.
+				retval.addAll(options.isParallel(task.polygons.size()) ? task.join() : task.compute());
+			}
+			return retval;
+		}
+	}
+
+	/**
+	 * Parallel version of {@link Node#build(List)}. Walks down the tree in a
+	 * loop, always following the larger side, and forks off a task for the
+	 * other side when it has enough polygons. Subtrees that are too small are
+	 * built serially.
+	 */
+	private static class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Node root;
+		private final List<Polygon> polygons;
+
+		BuildTask(Node root, List<Polygon> polygons) {
+			this.root = root;
+			this.polygons = polygons;
+		}
+
+		@Override
+		protected void compute() {
+			CSGOptions options = root.options;
+			List<BuildTask> forked = new ArrayList<BuildTask>();
+			Node node = root;
+			List<Polygon> remaining = polygons;
+			while (remaining.size() > 0) {
+				if (!options.isParallel(remaining.size())) {
+					// build() falls back to the serial version.
+					node.build(remaining);
+					break;
+				}
+				List<Polygon> front = new ArrayList<Polygon>();
+				List<Polygon> back = new ArrayList<Polygon>();
+				node.partition(remaining, front, back);
+				boolean frontIsLarger = front.size() >= back.size();
+				Node otherNode = frontIsLarger ? node.back : node.front;
+				List<Polygon> other = frontIsLarger ? back : front;
+				if (options.isParallel(other.size())) {
+					BuildTask task = new BuildTask(otherNode, other);
+					task.fork();
+					forked.add(task);
+				} else if (other.size() > 0) {
+					otherNode.build(other);
+				}
+				node = frontIsLarger ? node.front : node.back;
+				remaining = frontIsLarger ? front : back;
+			}
+			for (BuildTask task : forked) {
+				task.join();
+			}
+		}
+	}
+
+	/**
+	 * Parallel version of {@link Node#clipTo(Node)}. Each node's polygons are
+	 * clipped independently, so the node list is split in half (by polygon
+	 * count) until the halves are small enough to do serially.
+	 */
+	private static class ClipToTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Node bsp;
+		private final List<Node> nodes;
+		private final int from, to, count;
+
+		ClipToTask(Node bsp, List<Node> nodes, int from, int to, int count) {
+			this.bsp = bsp;
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.count = count;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1 && bsp.options.isParallel(count)) {
+				int half = 0, mid = from;
+				while (mid < to - 1 && half < count / 2) {
+					half += nodes.get(mid++).polygons.size();
+				}
+				invokeAll(new ClipToTask(bsp, nodes, from, mid, half), new ClipToTask(bsp, nodes, mid, to, count - half));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				Node node = nodes.get(i);
+				node.polygons = bsp.clipPolygons(node.polygons);
+			}
+		}
+	}
+
+	/**
+	 * A pending unit of work for the iterative traversals: a list of polygons
+	 * to push through a node.
+	 */
+	private static class Frame {
+		final Node node;
+		final List<Polygon> polygons;
+
+		Frame(Node node, List<Polygon> polygons) {
+			this.node = node;
+			this.polygons = polygons;
 		}
 	}
 }
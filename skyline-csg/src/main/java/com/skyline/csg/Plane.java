@@ -17,6 +17,25 @@ import com.skyline.csg.geom.*;
  * 
  */
 public class Plane {
+	static final int COPLANAR = 0; // on the plane.
+	static final int FRONT = 1; // in front of the plane.
+	static final int BACK = 2; // behind the plane.
+	static final int SPANNING = 3; // spanning the plane (partially in
+									// front, partially in back). Really
+									// only applies to polys.
+
+	// splitPolygon() runs for every polygon at every BSP node, so it reuses
+	// this instead of allocating a classification array per call.
+	private static final ThreadLocal<int[]> SCRATCH_TYPES = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[32];
+		}
+	};
+
+	// what the public splitPolygon() splits with. Never changed.
+	private static final CSGOptions DEFAULTS = new CSGOptions();
+
 	Vector3d normal;
 	double w;
 /**
@@ -34,7 +53,8 @@ public class Plane {
 	 * @verified
 	 */
 	public Plane clone() {
-		return new Plane(new Vector3d(this.normal), this.w);
+		// the constructor copies the normal.
+		return new Plane(this.normal, this.w);
 	}
 
 	/**
@@ -61,24 +81,37 @@ public class Plane {
 	 * @verified
 	 */
 	public void splitPolygon(Polygon polygon, List<Polygon> coplanarFront, List<Polygon> coplanarBack, List<Polygon> front, List<Polygon> back) {
-		final int COPLANAR = 0; // on the plane.
-		final int FRONT = 1; // in front of the plane.
-		final int BACK = 2; // behind the plane.
-		final int SPANNING = 3; // spanning the plane (partially in
-												// front, partially in back). Really
-												// only applies to polys.
+		splitPolygon(polygon, coplanarFront, coplanarBack, front, back, DEFAULTS);
+	}
 
+	/**
+	 * Same as {@link #splitPolygon(Polygon, List, List, List, List)}.
+	 * 
+	 * @param options
+	 *            whether to classify the vertices with {@link RelativeClassifier}
+	 *            (see {@link CSGOptions#setRobust(boolean)}), and if not, the
+	 *            position tolerance to classify them with (see
+	 *            {@link CSGOptions#setTolerance(Tolerance)}).
+	 */
+	void splitPolygon(Polygon polygon, List<Polygon> coplanarFront, List<Polygon> coplanarBack, List<Polygon> front, List<Polygon> back, CSGOptions options) {
+		boolean robust = options.isRobust();
+		double epsilon = options.effectiveTolerance().getPosition();
 		// Classify each point as well as the entire polygon into one of the
 		// above four classes.
+		List<Vertex> vertices = polygon.vertices;
+		int count = vertices.size();
+		int[] types = scratchTypes(count);
 		int polygonType = COPLANAR;
-		int[] types = new int[polygon.vertices.size()];
-//		List<Integer> types = new ArrayList<Integer>();
-		for (int i=0;i<polygon.vertices.size();i++){
-			Vertex v =polygon.vertices.get(i);
-			double t = this.normal.dot(v.pos) - this.w;
-			int type = (t < -CSG.EPSILON) ? BACK : (t > CSG.EPSILON) ? FRONT : COPLANAR;
+		for (int i = 0; i < count; i++) {
+			int type;
+			if (robust) {
+				type = RelativeClassifier.classify(this.normal, this.w, vertices.get(i).pos);
+			} else {
+				double t = this.normal.dot(vertices.get(i).pos) - this.w;
+				type = (t < -epsilon) ? BACK : (t > epsilon) ? FRONT : COPLANAR;
+			}
 			polygonType |= type;
-			types[i]=type;
+			types[i] = type;
 		}
 
 		// Put the polygon in the correct list, splitting it when necessary.
@@ -94,33 +127,98 @@ public class Plane {
 			back.add(polygon);
 			break;
 		case SPANNING:
-			List<Vertex> f = new ArrayList<Vertex>();
-			List<Vertex> b = new ArrayList<Vertex>();
-			for (int i = 0; i < polygon.vertices.size(); i++) {
-				int j = (i + 1) % polygon.vertices.size(); //circular
+			// size the fragments exactly: each vertex goes to one or both
+			// sides, and each spanning edge adds a vertex to both.
+			int frontCount = 0, backCount = 0;
+			for (int i = 0; i < count; i++) {
+				int ti = types[i], tj = types[(i + 1) % count];
+				if (ti != BACK)
+					frontCount++;
+				if (ti != FRONT)
+					backCount++;
+				if ((ti | tj) == SPANNING) {
+					frontCount++;
+					backCount++;
+				}
+			}
+			List<Vertex> f = new ArrayList<Vertex>(frontCount);
+			List<Vertex> b = new ArrayList<Vertex>(backCount);
+			Vector3d n = this.normal;
+			for (int i = 0; i < count; i++) {
+				int j = (i + 1) % count; //circular
 				int ti = types[i], tj = types[j];
-				Vertex vi = polygon.vertices.get(i);
-				Vertex vj = polygon.vertices.get(j);
+				Vertex vi = vertices.get(i);
+				Vertex vj = vertices.get(j);
 				if (ti != BACK)
 					f.add(vi);
 				if (ti != FRONT)
 					b.add(ti != BACK ? vi.clone() : vi);
 				if ((ti | tj) == SPANNING) {
-					Vector3d posDelta = new Vector3d(vj.pos);
-					posDelta.sub(vi.pos);
-					double t = (this.w - this.normal.dot(vi.pos)) / this.normal.dot(posDelta);
+					Vector3d pi = vi.pos, pj = vj.pos;
+					double t = (this.w - n.dot(pi)) / (n.x * (pj.x - pi.x) + n.y * (pj.y - pi.y) + n.z * (pj.z - pi.z));
+					if (robust) {
+						// the ends are strictly on either side, so the
+						// crossing is between them, whatever the rounding.
+						t = Math.max(0, Math.min(1, t));
+					}
 					Vertex v = vi.interpolate(vj, t);
 					f.add(v);
 					b.add(v.clone());
 				}
 			}
+			// the fragments lie on the same plane as the original, so there's
+			// no need to work it out again from their points.
 			if (f.size() >= 3) //more than 3 vertices...
-				front.add(new Polygon(f, polygon.shared));
+				front.add(new Polygon(f, polygon.shared, polygon.plane.clone()));
 			if (b.size() >= 3) //more than 3 vertices...
-				back.add(new Polygon(b, polygon.shared));
+				back.add(new Polygon(b, polygon.shared, polygon.plane.clone()));
 			break;
 		}
 	}
+
+	/**
+	 * @return this thread's scratch array for vertex classifications, with room
+	 *         for at least `count` entries.
+	 */
+	private static int[] scratchTypes(int count) {
+		int[] types = SCRATCH_TYPES.get();
+		if (types.length < count) {
+			types = new int[Math.max(count, types.length * 2)];
+			SCRATCH_TYPES.set(types);
+		}
+		return types;
+	}
+
+	/**
+	 * Classify `polygon` against this plane, without splitting it. Used by
+	 * {@link SplitStrategy} implementations to score candidate planes.
+	 * 
+	 * @param polygon
+	 * @param options
+	 *            whether to classify with a scale-relative tolerance, and the
+	 *            position tolerance, the same as
+	 *            {@link #splitPolygon(Polygon, List, List, List, List, CSGOptions)}.
+	 * @return one of COPLANAR, FRONT, BACK or SPANNING.
+	 */
+	int classify(Polygon polygon, CSGOptions options) {
+		boolean robust = options.isRobust();
+		double epsilon = options.effectiveTolerance().getPosition();
+		int polygonType = COPLANAR;
+		for (int i = 0; i < polygon.vertices.size(); i++) {
+			Vector3d pos = polygon.vertices.get(i).pos;
+			if (robust) {
+				polygonType |= RelativeClassifier.classify(this.normal, this.w, pos);
+			} else {
+				double t = this.normal.dot(pos) - this.w;
+				polygonType |= (t < -epsilon) ? BACK : (t > epsilon) ? FRONT : COPLANAR;
+			}
+			if (polygonType == SPANNING) {
+				break;
+			}
+		}
+		return polygonType;
+	}
+
 /**
  * Create a plane from three points. Points must be provided in CCW order.
  * 
@@ -22,6 +22,8 @@ public class Polygon {
 	Plane plane;
 	List<Vertex> vertices;
 	boolean shared;
+	// part of a snapshot. See freeze().
+	private boolean frozen;
 
 	public List<Vertex> getVertices() {
 		return vertices;
@@ -49,6 +51,16 @@ public class Polygon {
 		this.plane = Plane.fromPoints(vertices.get(0).pos, vertices.get(1).pos, vertices.get(2).pos);
 	}
 
+	/**
+	 * For polygons whose plane is already known, e.g. fragments split off
+	 * another polygon. `plane` is used as-is, not copied.
+	 */
+	Polygon(List<Vertex> vertices, boolean shared, Plane plane) {
+		this.vertices = vertices;
+		this.shared = shared;
+		this.plane = plane;
+	}
+
 	/**
 	 * Deep copy.
 	 * @param other
@@ -63,46 +75,143 @@ public class Polygon {
 	}
 	
 	/**
-	 * Shallow copy
+	 * Shallow copy. The vertices are shared, the plane is copied.
 	 */
 	public Polygon clone() {
-		List<Vertex> vertices = new ArrayList<Vertex>();
-		vertices.addAll(this.vertices);
-		return new Polygon(vertices, this.shared);
+		return new Polygon(new ArrayList<Vertex>(this.vertices), this.shared, this.plane.clone());
 	}
 
+	/**
+	 * Reverse the winding, the plane and the vertex normals.
+	 * 
+	 * Copy on write: the vertices may be shared with other polygons (see
+	 * {@link #clone()}), so they are replaced with flipped copies rather than
+	 * flipped in place. Flipping a clone never changes the original, which is
+	 * what makes it safe for several boolean operations to read the same
+	 * solid at once.
+	 */
 	public void flip() {
-		Collections.reverse(this.vertices);
-		for (Vertex v : this.vertices) {
-			v.flip();
-		}
+		checkMutable();
+		this.vertices = flippedVertices();
 		this.plane.flip();
 	}
 
+	/**
+	 * @return a flipped copy of this polygon, which is left as it is.
+	 */
+	public Polygon flipped() {
+		Plane plane = this.plane.clone();
+		plane.flip();
+		return new Polygon(flippedVertices(), this.shared, plane);
+	}
+
+	private List<Vertex> flippedVertices() {
+		List<Vertex> retval = new ArrayList<Vertex>(this.vertices.size());
+		for (int i = this.vertices.size() - 1; i >= 0; i--) {
+			retval.add(this.vertices.get(i).flipped());
+		}
+		return retval;
+	}
+
+	/**
+	 * Move this polygon. Copy on write, like {@link #flip()}: the vertices and
+	 * the plane are replaced with moved copies, so polygons sharing them are
+	 * left where they are.
+	 */
 	public void translate(Vector3d v) {
-		this.plane.translate(v);
-		for (Vertex vert : this.vertices) {
+		checkMutable();
+		List<Vertex> vertices = vertexCopies();
+		for (Vertex vert : vertices) {
 			vert.translate(v);
 		}
+		Plane plane = this.plane.clone();
+		plane.translate(v);
+		this.vertices = vertices;
+		this.plane = plane;
 	}
 
+	/**
+	 * Same as {@link #translate(Vector3d)}, rotating around the world origin.
+	 */
 	public void rotate(Quat4d rotation) {
-		this.plane.rotate(rotation);
-		for (Vertex vert : this.vertices) {
+		checkMutable();
+		List<Vertex> vertices = vertexCopies();
+		for (Vertex vert : vertices) {
 			vert.rotate(rotation);
 		}
+		Plane plane = this.plane.clone();
+		plane.rotate(rotation);
+		this.vertices = vertices;
+		this.plane = plane;
 	}
 
+	/**
+	 * Same as {@link #translate(Vector3d)}, scaling along the world axes.
+	 */
 	public void scale(Vector3d scaleFactor) {
-		for (Vertex vert : this.vertices) {
+		checkMutable();
+		List<Vertex> vertices = vertexCopies();
+		for (Vertex vert : vertices) {
 			vert.scale(scaleFactor);
 		}
+		this.vertices = vertices;
 		// Scaling normals is a pain in the ass. Just rebuild the plane.
-		// Can't replace the existing reference, though, since it might be held
-		// elsewhere. Instead just update it.
-		Plane p = Plane.fromPoints(vertices.get(0).pos, vertices.get(1).pos, vertices.get(2).pos);
-		this.plane.normal.set(p.normal.x, p.normal.y, p.normal.z);
-		this.plane.w = p.w;
+		this.plane = Plane.fromPoints(vertices.get(0).pos, vertices.get(1).pos, vertices.get(2).pos);
+	}
+
+	private List<Vertex> vertexCopies() {
+		List<Vertex> retval = new ArrayList<Vertex>(this.vertices.size());
+		for (Vertex v : this.vertices) {
+			retval.add(v.clone());
+		}
+		return retval;
+	}
+
+	/**
+	 * Make this polygon, its vertex list and its vertices reject changes, for
+	 * {@link CSG#snapshot()}. Its clones can be changed, copy on write.
+	 */
+	void freeze() {
+		for (Vertex v : this.vertices) {
+			v.frozen = true;
+		}
+		this.vertices = Collections.unmodifiableList(this.vertices);
+		this.frozen = true;
+	}
+
+	/**
+	 * @return this polygon, or, if it or any of its vertices belong to a
+	 *         {@link CSG#snapshot()}, a copy that can be changed, with copies
+	 *         of those vertices. For polygons that end up in the result of a
+	 *         boolean operation.
+	 */
+	Polygon thawed() {
+		boolean thaw = this.frozen;
+		for (int i = 0; !thaw && i < this.vertices.size(); i++) {
+			thaw = this.vertices.get(i).frozen;
+		}
+		if (!thaw) {
+			return this;
+		}
+		List<Vertex> vertices = new ArrayList<Vertex>(this.vertices.size());
+		for (Vertex v : this.vertices) {
+			vertices.add(v.frozen ? v.clone() : v);
+		}
+		return new Polygon(vertices, this.shared, this.plane.clone());
+	}
+
+	/**
+	 * @return true if this polygon is part of a {@link CSG#snapshot()}, and
+	 *         can't be changed.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Polygons of a snapshot can't be changed. Change a clone.");
+		}
 	}
 
 	public String toString() {
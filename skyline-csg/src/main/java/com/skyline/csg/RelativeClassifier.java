@@ -0,0 +1,59 @@
+package com.skyline.csg;
+
+import javax.vecmath.*;
+
+/**
+ * Classifies points against planes for {@link CSGOptions#setRobust(boolean)},
+ * with a tolerance relative to the scale of the coordinates.
+ *
+ * {@link CSG#EPSILON} is an absolute distance. Far from the origin it is
+ * smaller than the rounding error of the plane equation, so the same point can
+ * come out on different sides of the same plane, which cracks the result. Near
+ * small features it is too big, and flattens them. Here, the coplanar band
+ * scales with the size of the terms of the plane equation instead, and is
+ * about 10^4 times wider than their rounding error.
+ *
+ * This is a tolerance, not an exact predicate: it doesn't decide the true side
+ * of points against the true plane, and a point within rounding error of the
+ * edge of the band may come out either way. What it guarantees is that points
+ * clearly off the plane, at any scale, are never taken for coplanar because of
+ * rounding, and that a plane and its flip classify every point the other way
+ * round.
+ *
+ * @author philippd
+ */
+final class RelativeClassifier {
+
+	/**
+	 * Points closer to a plane than this, relative to the size of the terms of
+	 * its equation (|nx * x| + |ny * y| + |nz * z| + |w|), are on it. That's
+	 * about 10^4 units in the last place, which covers the rounding error of
+	 * the vertices made by splitting.
+	 */
+	static final double RELATIVE_EPSILON = 1e-12;
+
+	private RelativeClassifier() {
+	}
+
+	/**
+	 * @return one of {@link Plane#COPLANAR}, {@link Plane#FRONT} or
+	 *         {@link Plane#BACK}.
+	 */
+	static int classify(Vector3d n, double w, Vector3d p) {
+		return classify(n.x, n.y, n.z, w, p.x, p.y, p.z);
+	}
+
+	/**
+	 * Same as {@link #classify(Vector3d, double, Vector3d)}, for the plane
+	 * (nx, ny, nz, w) and the point (px, py, pz).
+	 */
+	static int classify(double nx, double ny, double nz, double w, double px, double py, double pz) {
+		double x = nx * px, y = ny * py, z = nz * pz;
+		double t = x + y + z - w;
+		double size = Math.abs(x) + Math.abs(y) + Math.abs(z) + Math.abs(w);
+		if (Math.abs(t) <= RELATIVE_EPSILON * size) {
+			return Plane.COPLANAR;
+		}
+		return t > 0 ? Plane.FRONT : Plane.BACK;
+	}
+}
@@ -0,0 +1,129 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+/**
+ * Picks a splitting plane by scoring a sample of the candidate polygons'
+ * planes. Each candidate is classified against a sample of the polygons in the
+ * set, and scored as:
+ *
+ * <pre>
+ * splitWeight * spanning + balanceWeight * |front - back|
+ * </pre>
+ *
+ * The lowest score wins. Axis-aligned candidates can optionally have their
+ * score discounted by `axisBias` (0 = no preference, 1 = always prefer an
+ * axis-aligned plane if there is one).
+ *
+ * Both samples are taken at a fixed stride through the list, so the choice is
+ * deterministic for a given input.
+ *
+ * @author philippd
+ */
+public class SampledSplitStrategy implements SplitStrategy {
+
+	static final int DEFAULT_CANDIDATES = 16;
+	static final int DEFAULT_PROBES = 64;
+	static final double DEFAULT_SPLIT_WEIGHT = 8;
+	static final double DEFAULT_BALANCE_WEIGHT = 1;
+
+	private final int candidates;
+	private final int probes;
+	private final double splitWeight;
+	private final double balanceWeight;
+	private final double axisBias;
+
+	public SampledSplitStrategy() {
+		this(DEFAULT_CANDIDATES, DEFAULT_PROBES, DEFAULT_SPLIT_WEIGHT, DEFAULT_BALANCE_WEIGHT, 0);
+	}
+
+	/**
+	 * @param candidates
+	 *            maximum number of candidate planes to score.
+	 * @param probes
+	 *            maximum number of polygons to classify against each
+	 *            candidate.
+	 * @param splitWeight
+	 *            cost of each polygon that would be split by the candidate.
+	 * @param balanceWeight
+	 *            cost of each polygon of difference between the front and back
+	 *            lists.
+	 * @param axisBias
+	 *            in [0,1]. Fraction of the score taken off for axis-aligned
+	 *            candidates.
+	 */
+	public SampledSplitStrategy(int candidates, int probes, double splitWeight, double balanceWeight, double axisBias) {
+		assert candidates > 0 && probes > 0 : "Need at least one candidate and one probe.";
+		assert axisBias >= 0 && axisBias <= 1 : "axisBias must be in [0,1].";
+		this.candidates = candidates;
+		this.probes = probes;
+		this.splitWeight = splitWeight;
+		this.balanceWeight = balanceWeight;
+		this.axisBias = axisBias;
+	}
+
+	public Plane select(List<Polygon> polygons, CSGOptions options) {
+		int n = polygons.size();
+		if (n <= 2) {
+			// nothing to gain.
+			return polygons.get(0).plane;
+		}
+		int candidateStep = Math.max(1, n / candidates);
+		int probeStep = Math.max(1, n / probes);
+
+		Plane best = null;
+		double bestScore = Double.MAX_VALUE;
+		for (int c = 0; c < n; c += candidateStep) {
+			Plane plane = polygons.get(c).plane;
+			int front = 0, back = 0, spanning = 0;
+			for (int i = 0; i < n; i += probeStep) {
+				switch (plane.classify(polygons.get(i), options)) {
+				case Plane.FRONT:
+					front++;
+					break;
+				case Plane.BACK:
+					back++;
+					break;
+				case Plane.SPANNING:
+					spanning++;
+					break;
+				}
+			}
+			double score = splitWeight * spanning + balanceWeight * Math.abs(front - back);
+			if (axisBias > 0 && isAxisAligned(plane.normal, options.effectiveTolerance().getNormal())) {
+				score *= 1 - axisBias;
+			}
+			if (score < bestScore) {
+				bestScore = score;
+				best = plane;
+			}
+		}
+		return best;
+	}
+
+	private static boolean isAxisAligned(Vector3d n, double epsilon) {
+		return Math.max(Math.abs(n.x), Math.max(Math.abs(n.y), Math.abs(n.z))) > 1 - epsilon;
+	}
+
+	public int getCandidates() {
+		return candidates;
+	}
+
+	public int getProbes() {
+		return probes;
+	}
+
+	public double getSplitWeight() {
+		return splitWeight;
+	}
+
+	public double getBalanceWeight() {
+		return balanceWeight;
+	}
+
+	public double getAxisBias() {
+		return axisBias;
+	}
+}
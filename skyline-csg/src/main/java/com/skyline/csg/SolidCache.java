@@ -0,0 +1,129 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+/**
+ * Solids by key, bounded by their estimated size. When the estimated size of
+ * the cached solids goes over the limit, the least recently used ones are
+ * dropped. The cache behind {@link com.skyline.csg.expr.ExprCache} and
+ * {@link com.skyline.csg.geom.Primitives}.
+ *
+ * Safe to share between threads.
+ *
+ * @author philippd
+ */
+public class SolidCache<K> {
+
+	// rough heap cost of a Polygon with its vertex list and plane, and of
+	// each Vertex with its vectors and texture coordinates.
+	public static final int POLYGON_BYTES = 128;
+	public static final int VERTEX_BYTES = 136;
+
+	private final long maxBytes;
+	// in access order, so the eldest entry is the least recently used.
+	private final LinkedHashMap<K, Entry> entries = new LinkedHashMap<K, Entry>(16, 0.75f, true);
+	private long bytes;
+	private long hits, misses;
+
+	private static class Entry {
+		final CSG csg;
+		final long bytes;
+
+		Entry(CSG csg, long bytes) {
+			this.csg = csg;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * @param maxBytes
+	 *            the most memory the cached solids may take, as estimated by
+	 *            {@link #sizeOf(CSG)}.
+	 */
+	public SolidCache(long maxBytes) {
+		assert maxBytes >= 0 : "maxBytes can't be negative.";
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param key
+	 * @return the cached solid for `key`, or null.
+	 */
+	public synchronized CSG get(K key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.csg;
+	}
+
+	/**
+	 * Cache `csg`, unless it's bigger than the whole cache, and drop the least
+	 * recently used solids until the rest fit.
+	 *
+	 * @param key
+	 * @param csg
+	 */
+	public synchronized void put(K key, CSG csg) {
+		long size = sizeOf(csg);
+		if (size > maxBytes) {
+			return;
+		}
+		Entry old = entries.put(key, new Entry(csg, size));
+		if (old != null) {
+			bytes -= old.bytes;
+		}
+		bytes += size;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (bytes > maxBytes) {
+			bytes -= eldest.next().bytes;
+			eldest.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return the number of cached solids.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated memory taken by the cached solids.
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @param csg
+	 * @return a rough estimate of the heap taken by the polygons of `csg`,
+	 *         once any pending transform is applied. Doesn't apply it.
+	 */
+	public static long sizeOf(CSG csg) {
+		long size = 0;
+		for (Polygon p : csg.unbakedPolygons()) {
+			size += POLYGON_BYTES + (long) VERTEX_BYTES * p.getVertices().size();
+		}
+		return size;
+	}
+}
@@ -0,0 +1,49 @@
+package com.skyline.csg;
+
+import java.util.*;
+
+/**
+ * Picks the plane used to partition a set of polygons when building a BSP
+ * {@link Node}. csg.js always uses the plane of the first polygon in the set,
+ * which is cheap, but produces deep, unbalanced trees (and a lot of extra
+ * fragments from {@link Plane#splitPolygon}) on meshes with a regular
+ * structure, like buildings.
+ *
+ * Implementations are shared between nodes (and threads), so they must not
+ * hold any per-build state.
+ *
+ * @author philippd
+ */
+public interface SplitStrategy {
+
+	/**
+	 * Partition on the plane of the first polygon in the set. This is the
+	 * original csg.js behaviour, and the default.
+	 */
+	SplitStrategy FIRST = new FirstPolygonSplitStrategy();
+
+	/**
+	 * Score a sample of candidate planes by the number of polygons they split,
+	 * and by how evenly they divide the rest into front and back.
+	 */
+	SplitStrategy SAMPLED = new SampledSplitStrategy();
+
+	/**
+	 * Like {@link #SAMPLED}, but prefer planes whose normal lies along the x,
+	 * y or z axis. Good for architectural meshes, where most faces are
+	 * axis-aligned.
+	 */
+	SplitStrategy AXIS_ALIGNED = new SampledSplitStrategy(SampledSplitStrategy.DEFAULT_CANDIDATES, SampledSplitStrategy.DEFAULT_PROBES, SampledSplitStrategy.DEFAULT_SPLIT_WEIGHT, SampledSplitStrategy.DEFAULT_BALANCE_WEIGHT, 0.5);
+
+	/**
+	 * @param polygons
+	 *            the polygons to partition. Never null or empty.
+	 * @param options
+	 *            the options of the tree being built. Candidates should be
+	 *            scored with the same tolerance the polygons will be split
+	 *            with.
+	 * @return the plane to partition on. The caller takes a copy, so this can
+	 *         be the plane of one of the polygons.
+	 */
+	Plane select(List<Polygon> polygons, CSGOptions options);
+}
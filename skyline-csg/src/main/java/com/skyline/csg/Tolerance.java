@@ -0,0 +1,134 @@
+package com.skyline.csg;
+
+import javax.vecmath.*;
+
+/**
+ * How far apart two values may be and still count as the same. Positions,
+ * normals and texture coordinates each have their own tolerance: positions are
+ * in model units, so theirs should follow the size of the model, while normals
+ * are unit length and texture coordinates usually between 0 and 1, whatever
+ * the model.
+ *
+ * {@link #DEFAULT} is the fixed {@link CSG#EPSILON} everything used before,
+ * which suits models a few units to a few hundred units across. Much bigger or
+ * much smaller models should use {@link #forBounds(BoundingBox)}. Set it per
+ * operation with {@link CSGOptions#setTolerance(Tolerance)}, or per solid with
+ * {@link CSG#setTolerance(Tolerance)}.
+ *
+ * Immutable.
+ *
+ * @author philippd
+ */
+public final class Tolerance {
+
+	public static final Tolerance DEFAULT = new Tolerance(CSG.EPSILON, CSG.EPSILON, CSG.EPSILON);
+
+	/**
+	 * The position tolerance of {@link #forExtent(double)}, relative to the
+	 * extent. The same as {@link #DEFAULT} for a model 100 units across.
+	 */
+	public static final double RELATIVE_POSITION = 1e-7;
+
+	private final double position;
+	private final double normal;
+	private final double uv;
+
+	/**
+	 * @param position
+	 *            the distance below which points are the same, and points are
+	 *            on a plane.
+	 * @param normal
+	 *            the difference in each component below which normals are the
+	 *            same.
+	 * @param uv
+	 *            the difference in each component below which texture
+	 *            coordinates are the same.
+	 */
+	public Tolerance(double position, double normal, double uv) {
+		assert position > 0 && normal >= 0 && uv >= 0 : "position must be positive, normal and uv can't be negative.";
+		this.position = position;
+		this.normal = normal;
+		this.uv = uv;
+	}
+
+	/**
+	 * @param extent
+	 *            the size of the model: the longest side of its bounds.
+	 * @return a position tolerance of {@link #RELATIVE_POSITION} of `extent`,
+	 *         and the default tolerances for normals and texture coordinates.
+	 */
+	public static Tolerance forExtent(double extent) {
+		assert extent > 0 : "extent must be positive.";
+		return new Tolerance(RELATIVE_POSITION * extent, DEFAULT.normal, DEFAULT.uv);
+	}
+
+	/**
+	 * Same as {@link #forExtent(double)}, with the longest side of `bounds`.
+	 * Models far from the origin, compared to their size, get at least the
+	 * rounding error of their coordinates, the same relative band the robust
+	 * mode uses (see {@link CSGOptions#setRobust(boolean)}).
+	 *
+	 * @param bounds
+	 * @return {@link #DEFAULT} if `bounds` are empty, or a single point at the
+	 *         origin.
+	 */
+	public static Tolerance forBounds(BoundingBox bounds) {
+		if (bounds.isEmpty()) {
+			return DEFAULT;
+		}
+		Vector3d min = bounds.getMin(), max = bounds.getMax();
+		double extent = Math.max(max.x - min.x, Math.max(max.y - min.y, max.z - min.z));
+		double magnitude = Math.max(Math.max(Math.abs(min.x), Math.abs(max.x)),
+				Math.max(Math.max(Math.abs(min.y), Math.abs(max.y)), Math.max(Math.abs(min.z), Math.abs(max.z))));
+		double position = Math.max(RELATIVE_POSITION * extent, RelativeClassifier.RELATIVE_EPSILON * magnitude);
+		if (position == 0) {
+			return DEFAULT;
+		}
+		return new Tolerance(position, DEFAULT.normal, DEFAULT.uv);
+	}
+
+	/**
+	 * @return the looser of each of the tolerances of `a` and `b`. Either may
+	 *         be null, in which case the other is returned.
+	 */
+	static Tolerance looser(Tolerance a, Tolerance b) {
+		if (a == null || a == b) {
+			return b;
+		} else if (b == null) {
+			return a;
+		}
+		return new Tolerance(Math.max(a.position, b.position), Math.max(a.normal, b.normal), Math.max(a.uv, b.uv));
+	}
+
+	public double getPosition() {
+		return position;
+	}
+
+	public double getNormal() {
+		return normal;
+	}
+
+	public double getUv() {
+		return uv;
+	}
+
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(position) * 31 + Double.doubleToLongBits(normal);
+		bits = bits * 31 + Double.doubleToLongBits(uv);
+		return (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Tolerance)) {
+			return false;
+		}
+		Tolerance other = (Tolerance) obj;
+		return position == other.position && normal == other.normal && uv == other.uv;
+	}
+
+	public String toString() {
+		return String.format("{\"position\": %g, \"normal\": %g, \"uv\": %g}", position, normal, uv);
+	}
+}
@@ -22,8 +22,15 @@ import com.skyline.csg.geom.*;
  */
 public class Vertex {
 
+	/**
+	 * Don't change these in place if the vertex belongs to a
+	 * {@link CSG#snapshot()}, or is shared with other polygons. Transform the
+	 * polygon instead, or replace the vertex.
+	 */
 	public Vector3d pos, normal;
 	public TexCoord2f tex;
+	// part of a snapshot. See Polygon.freeze().
+	boolean frozen;
 
 	/**
 	 * @param pos
@@ -44,9 +51,21 @@ public class Vertex {
 	 * @verified
 	 */
 	public void flip() {
+		checkMutable();
 		this.normal.negate();
 	}
 
+	/**
+	 * @return a copy of this vertex with the normal reversed. This vertex is
+	 *         left as it is, and shares nothing with the copy, so changing one
+	 *         never changes the other.
+	 */
+	public Vertex flipped() {
+		Vertex retval = this.clone();
+		retval.normal.negate();
+		return retval;
+	}
+
 	/**
 	 * Create a new vertex between this vertex and `other` by linearly
 	 * interpolating all properties using a parameter of `t`. Subclasses should
@@ -58,16 +77,13 @@ public class Vertex {
 	 * @verified
 	 */
 	public Vertex interpolate(Vertex other, double t) {
-		Vector3d newPos = new Vector3d(this.pos);
-		newPos.interpolate(other.pos, t);
-
-		Vector3d newNormal = new Vector3d(this.normal);
-		newNormal.interpolate(other.normal, t);
-
-		TexCoord2f newTex = new TexCoord2f(this.tex);
-		newTex.interpolate(other.tex, (float) t);
-
-		return new Vertex(newPos, newNormal, newTex);
+		// the clone's fields are already fresh copies, so interpolate them in
+		// place rather than copying them again.
+		Vertex retval = this.clone();
+		retval.pos.interpolate(other.pos, t);
+		retval.normal.interpolate(other.normal, t);
+		retval.tex.interpolate(other.tex, (float) t);
+		return retval;
 	}
 
 	/**
@@ -79,12 +95,14 @@ public class Vertex {
 	}
 
 	public void translate(double x, double y, double z) {
+		checkMutable();
 		pos.x += x;
 		pos.y += y;
 		pos.z += z;
 	}
 
 	public void translate(Vector3d v) {
+		checkMutable();
 		// no change to normal or texCoord.
 		pos.add(v);
 	}
@@ -98,6 +116,7 @@ public class Vertex {
 	 *            rotate around the x, y, and z axes.
 	 */
 	public void rotate(Quat4d rotation) {
+		checkMutable();
 		Util.rotate(pos, rotation);
 		Util.rotate(normal, rotation);
 	}
@@ -107,6 +126,7 @@ public class Vertex {
 	}
 
 	public void setPos(Vector3d pos) {
+		checkMutable();
 		this.pos = pos;
 	}
 
@@ -115,6 +135,7 @@ public class Vertex {
 	}
 
 	public void setNormal(Vector3d normal) {
+		checkMutable();
 		this.normal = normal;
 	}
 
@@ -126,11 +147,20 @@ public class Vertex {
 	}
 
 	public boolean equals(Vertex v) {
-		// TODO: Is it wrong to use the same epsilon value for position AND
-		// normal? Normal is normalized, and less likely to exceed epsilon.
-		return this.pos.epsilonEquals(v.pos, CSG.EPSILON)
-				&& this.normal.epsilonEquals(v.normal, CSG.EPSILON)
-				&& this.tex.epsilonEquals(v.tex, (float) CSG.EPSILON);
+		return equals(v, Tolerance.DEFAULT);
+	}
+
+	/**
+	 * @param v
+	 * @param tolerance
+	 *            how far apart the positions, normals and texture coordinates
+	 *            may each be.
+	 * @return true if `v` is the same vertex, within `tolerance`.
+	 */
+	public boolean equals(Vertex v, Tolerance tolerance) {
+		return this.pos.epsilonEquals(v.pos, tolerance.getPosition())
+				&& this.normal.epsilonEquals(v.normal, tolerance.getNormal())
+				&& this.tex.epsilonEquals(v.tex, (float) tolerance.getUv());
 	}
 
 	public String toString() {
@@ -138,6 +168,7 @@ public class Vertex {
 	}
 
 	public void scale(Vector3d scaleFactor) {
+		checkMutable();
 		this.pos.set(this.pos.x * scaleFactor.x, this.pos.y * scaleFactor.y, this.pos.z * scaleFactor.z);
 
 		if (scaleFactor.x != scaleFactor.y || scaleFactor.x != scaleFactor.z) {
@@ -153,6 +184,13 @@ public class Vertex {
 	}
 
 	public void setTex(TexCoord2f tex) {
+		checkMutable();
 		this.tex = tex;
 	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Vertices of a snapshot can't be changed. Change a clone.");
+		}
+	}
 }
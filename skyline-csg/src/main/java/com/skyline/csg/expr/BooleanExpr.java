@@ -0,0 +1,60 @@
+package com.skyline.csg.expr;
+
+import java.util.concurrent.*;
+
+import com.skyline.csg.*;
+
+/**
+ * A union, subtraction or intersection of two expressions.
+ *
+ * @author philippd
+ */
+final class BooleanExpr extends Expr {
+
+	final CompiledCSG.Op op;
+	final Expr left, right;
+
+	BooleanExpr(CompiledCSG.Op op, Expr left, Expr right) {
+		super((op.ordinal() * 31 + left.hashCode()) * 31 + right.hashCode());
+		this.op = op;
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	CSG compute(ExprCache cache) {
+		CSG a = left.evaluate(cache);
+		CSG b = right.evaluate(cache);
+		// lets a cancelled job stop before its next operation.
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("Interrupted before " + op.name().toLowerCase() + ".");
+		}
+		switch (op) {
+		case UNION:
+			return a.union(b);
+		case SUBTRACT:
+			return a.subtract(b);
+		case INTERSECT:
+			return a.intersect(b);
+		default:
+			throw new AssertionError(op);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof BooleanExpr) || obj.hashCode() != hashCode()) {
+			return false;
+		}
+		BooleanExpr other = (BooleanExpr) obj;
+		return op == other.op && left.equals(other.left) && right.equals(other.right);
+	}
+
+	@Override
+	public String toString() {
+		return op.name().toLowerCase() + "(" + left + ", " + right + ")";
+	}
+}
@@ -0,0 +1,302 @@
+package com.skyline.csg.expr;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import com.skyline.csg.*;
+
+/**
+ * Runs batches of independent CSG jobs, such as one {@link Expr} per building
+ * lot, and hands out the results as {@link CompletableFuture}s.
+ *
+ * <ul>
+ * <li>Jobs run on virtual threads when the JVM has them (Java 21 and later),
+ * and on a pool with one thread per processor otherwise. Any other
+ * {@link ExecutorService} can be passed in.</li>
+ * <li>At most `maxInFlight` jobs are queued or running at once. Submitting
+ * more blocks the caller until earlier jobs finish, so a huge batch can't
+ * flood the heap.</li>
+ * <li>Cancelling a job's future, or letting its timeout expire, cancels the
+ * job. If it hasn't started, its slot is given back at once, and it is skipped
+ * when it comes up in the executor's queue. If it's running, it is
+ * interrupted, and gives its slot back when it exits. {@link Expr} jobs check
+ * for interruption between nodes, so they stop at the next boolean
+ * operation.</li>
+ * </ul>
+ *
+ * Expression jobs share an optional {@link ExprCache}, so subexpressions
+ * common to many jobs (the same window cutter, say) are computed once.
+ *
+ * @author philippd
+ */
+public class CsgExecutor {
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 4 * Runtime.getRuntime().availableProcessors();
+
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final Semaphore permits;
+	private final ExprCache cache;
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * On virtual threads if available, with {@link #DEFAULT_MAX_IN_FLIGHT} and
+	 * no cache.
+	 */
+	public CsgExecutor() {
+		this(newDefaultExecutor(), true, DEFAULT_MAX_IN_FLIGHT, null);
+	}
+
+	/**
+	 * @param maxInFlight
+	 *            the most jobs queued or running at once.
+	 * @param cache
+	 *            shared by all {@link Expr} jobs. May be null.
+	 */
+	public CsgExecutor(int maxInFlight, ExprCache cache) {
+		this(newDefaultExecutor(), true, maxInFlight, cache);
+	}
+
+	/**
+	 * @param executor
+	 *            runs the jobs. It is not shut down with this executor.
+	 * @param maxInFlight
+	 *            the most jobs queued or running at once.
+	 * @param cache
+	 *            shared by all {@link Expr} jobs. May be null.
+	 */
+	public CsgExecutor(ExecutorService executor, int maxInFlight, ExprCache cache) {
+		this(executor, false, maxInFlight, cache);
+	}
+
+	private CsgExecutor(ExecutorService executor, boolean ownsExecutor, int maxInFlight, ExprCache cache) {
+		assert maxInFlight > 0 : "maxInFlight must be positive.";
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.permits = new Semaphore(maxInFlight);
+		this.cache = cache;
+		this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "CsgExecutor timeouts");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// don't keep thousands of cancelled timeouts around.
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * @return an executor that starts a virtual thread per job, or, before
+	 *         Java 21, a pool of daemon threads, one per processor.
+	 */
+	public static ExecutorService newDefaultExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			// no virtual threads.
+		}
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "CsgExecutor-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Evaluate `expr`. Blocks while `maxInFlight` jobs are already queued or
+	 * running.
+	 *
+	 * @param expr
+	 * @return the result. Cancel it to cancel the job.
+	 */
+	public CompletableFuture<CSG> submit(Expr expr) {
+		return submit(expr, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Same as {@link #submit(Expr)}, with a timeout.
+	 *
+	 * @param expr
+	 * @param timeout
+	 *            after this long, counted from now, the future fails with a
+	 *            {@link TimeoutException} and the job is cancelled. 0 for no
+	 *            timeout.
+	 * @param unit
+	 * @return
+	 */
+	public CompletableFuture<CSG> submit(final Expr expr, long timeout, TimeUnit unit) {
+		return submit(new Callable<CSG>() {
+			public CSG call() {
+				return expr.evaluate(cache);
+			}
+		}, timeout, unit);
+	}
+
+	/**
+	 * Run any job that builds a solid, for instance with the {@link CSG}
+	 * operations directly. Blocks while `maxInFlight` jobs are already queued
+	 * or running.
+	 *
+	 * @param job
+	 * @return the result. Cancel it to cancel the job.
+	 */
+	public CompletableFuture<CSG> submit(Callable<CSG> job) {
+		return submit(job, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Same as {@link #submit(Callable)}, with a timeout.
+	 *
+	 * @param job
+	 * @param timeout
+	 *            after this long, counted from now, the future fails with a
+	 *            {@link TimeoutException} and the job is cancelled. 0 for no
+	 *            timeout.
+	 * @param unit
+	 * @return
+	 */
+	public CompletableFuture<CSG> submit(Callable<CSG> job, long timeout, TimeUnit unit) {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			CompletableFuture<CSG> retval = new CompletableFuture<CSG>();
+			retval.completeExceptionally(e);
+			return retval;
+		}
+		final Job retval = new Job(permits);
+		try {
+			retval.start(executor, job);
+		} catch (RejectedExecutionException e) {
+			retval.completeExceptionally(e);
+			retval.stop();
+			return retval;
+		}
+		if (timeout > 0) {
+			final ScheduledFuture<?> expiry = timer.schedule(new Runnable() {
+				public void run() {
+					retval.timeOut();
+				}
+			}, timeout, unit);
+			retval.whenComplete(new BiConsumer<CSG, Throwable>() {
+				public void accept(CSG csg, Throwable t) {
+					expiry.cancel(false);
+				}
+			});
+		}
+		return retval;
+	}
+
+	/**
+	 * Submit every expression in `exprs`, in order. Blocks as needed to keep
+	 * at most `maxInFlight` jobs queued or running.
+	 *
+	 * @param exprs
+	 * @return a future for each expression, in the same order.
+	 */
+	public List<CompletableFuture<CSG>> submitAll(Collection<? extends Expr> exprs) {
+		List<CompletableFuture<CSG>> retval = new ArrayList<CompletableFuture<CSG>>(exprs.size());
+		for (Expr expr : exprs) {
+			retval.add(submit(expr));
+		}
+		return retval;
+	}
+
+	/**
+	 * @return the number of jobs that can still be submitted without blocking.
+	 */
+	public int availablePermits() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * Stop accepting jobs. Jobs already submitted still run, unless the
+	 * executor was passed in and is shut down elsewhere.
+	 */
+	public void shutdown() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+		timer.shutdown();
+	}
+
+	/**
+	 * A job's result. Cancelling it, or timing out, cancels the task running
+	 * the job.
+	 *
+	 * The job's permit is given back exactly once: by the task when it exits,
+	 * or, if the task never gets to run the job, by whoever cancels it first.
+	 */
+	private static class Job extends CompletableFuture<CSG> {
+		private final Semaphore permits;
+		// set by whichever of the task and a cancellation comes first.
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		private volatile Future<?> task;
+
+		Job(Semaphore permits) {
+			this.permits = permits;
+		}
+
+		void start(ExecutorService executor, final Callable<CSG> job) {
+			task = executor.submit(new Runnable() {
+				public void run() {
+					if (!claimed.compareAndSet(false, true)) {
+						// cancelled before it started, and the permit given
+						// back then.
+						return;
+					}
+					try {
+						if (!isDone()) {
+							complete(job.call());
+						}
+					} catch (Throwable t) {
+						completeExceptionally(t);
+					} finally {
+						permits.release();
+					}
+				}
+			});
+			if (isDone()) {
+				// cancelled while we were submitting.
+				task.cancel(true);
+			}
+		}
+
+		void timeOut() {
+			if (completeExceptionally(new TimeoutException())) {
+				stop();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean retval = super.cancel(mayInterruptIfRunning);
+			if (retval) {
+				stop();
+			}
+			return retval;
+		}
+
+		/**
+		 * Give the permit back if the task hasn't started, and interrupt it if
+		 * it has.
+		 */
+		void stop() {
+			if (claimed.compareAndSet(false, true)) {
+				permits.release();
+			}
+			Future<?> t = task;
+			if (t != null) {
+				t.cancel(true);
+			}
+		}
+	}
+}
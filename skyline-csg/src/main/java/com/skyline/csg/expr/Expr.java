@@ -0,0 +1,141 @@
+package com.skyline.csg.expr;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * A lazy CSG expression: a primitive, a transformed expression, or a boolean
+ * operation on two expressions. Building an expression does no geometry work;
+ * {@link #evaluate(ExprCache)} does.
+ *
+ * Expressions are immutable, and equal (with equal hash codes) whenever they
+ * have the same structure and parameters, whether or not they are the same
+ * objects. That makes them usable as keys in an {@link ExprCache}: after a
+ * small edit to a scene, every unchanged subexpression is found in the cache
+ * and only the changed path up to the root is computed again.
+ *
+ * <pre>
+ * Expr scene = Expr.box(2, 2, 2).subtract(Expr.cylinder(0.5, 3, 16));
+ * CSG csg = scene.evaluate(cache);
+ * </pre>
+ *
+ * @author philippd
+ */
+public abstract class Expr {
+
+	private final int hash;
+
+	Expr(int hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * @return a {@link com.skyline.csg.geom.Box} centered on the origin.
+	 */
+	public static Expr box(double width, double height, double depth) {
+		return new PrimitiveExpr(PrimitiveExpr.Kind.BOX, width, height, depth);
+	}
+
+	/**
+	 * @return a {@link com.skyline.csg.geom.Sphere} centered on the origin.
+	 */
+	public static Expr sphere(double radius, int lod) {
+		return new PrimitiveExpr(PrimitiveExpr.Kind.SPHERE, radius, lod);
+	}
+
+	/**
+	 * @return a {@link com.skyline.csg.geom.Cylinder} centered on the origin,
+	 *         along the y axis.
+	 */
+	public static Expr cylinder(double radius, double height, int slices) {
+		return new PrimitiveExpr(PrimitiveExpr.Kind.CYLINDER, radius, height, slices);
+	}
+
+	public Expr union(Expr other) {
+		return new BooleanExpr(CompiledCSG.Op.UNION, this, other);
+	}
+
+	public Expr subtract(Expr other) {
+		return new BooleanExpr(CompiledCSG.Op.SUBTRACT, this, other);
+	}
+
+	public Expr intersect(Expr other) {
+		return new BooleanExpr(CompiledCSG.Op.INTERSECT, this, other);
+	}
+
+	public Expr translate(double x, double y, double z) {
+		Matrix4d m = new Matrix4d();
+		m.setIdentity();
+		m.setTranslation(new Vector3d(x, y, z));
+		return transform(m);
+	}
+
+	public Expr translate(Vector3d v) {
+		return translate(v.x, v.y, v.z);
+	}
+
+	public Expr scale(Vector3d v) {
+		Matrix4d m = new Matrix4d();
+		m.setIdentity();
+		m.m00 = v.x;
+		m.m11 = v.y;
+		m.m22 = v.z;
+		return transform(m);
+	}
+
+	public Expr rotate(Quat4d rotation) {
+		Quat4d q = new Quat4d(rotation);
+		q.normalize();
+		Matrix4d m = new Matrix4d();
+		m.set(q);
+		return transform(m);
+	}
+
+	/**
+	 * Same as {@link CSG#transform(Matrix4d)}. Consecutive transforms are
+	 * folded into one.
+	 *
+	 * @param transform
+	 * @return
+	 */
+	public Expr transform(Matrix4d transform) {
+		return new TransformExpr(this, transform);
+	}
+
+	/**
+	 * Evaluate without a cache. Shared subexpressions are computed every time
+	 * they occur.
+	 *
+	 * @return
+	 */
+	public CSG evaluate() {
+		return compute(null);
+	}
+
+	/**
+	 * Evaluate this expression, reusing the results of any subexpression
+	 * already in `cache`, and adding the ones that aren't.
+	 *
+	 * @param cache
+	 *            may be null.
+	 * @return the solid. It may be shared with the cache and other callers, so
+	 *         don't change it in place.
+	 */
+	public CSG evaluate(ExprCache cache) {
+		return cache == null ? compute(null) : cache.evaluate(this);
+	}
+
+	/**
+	 * Compute this node, evaluating the children through `cache`.
+	 */
+	abstract CSG compute(ExprCache cache);
+
+	@Override
+	public final int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public abstract boolean equals(Object obj);
+}
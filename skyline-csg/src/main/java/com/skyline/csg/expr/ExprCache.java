@@ -0,0 +1,90 @@
+package com.skyline.csg.expr;
+
+import com.skyline.csg.*;
+
+/**
+ * Remembers the solids computed for {@link Expr}essions, keyed by their
+ * structure, so evaluating the same subexpression again is a lookup. When the
+ * estimated size of the cached solids goes over the limit, the least recently
+ * used ones are dropped.
+ *
+ * Safe to share between threads. Two threads missing on the same expression at
+ * the same time will both compute it; the last one wins.
+ *
+ * @author philippd
+ */
+public class ExprCache {
+
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+	private final SolidCache<Expr> solids;
+
+	public ExprCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param maxBytes
+	 *            the most memory the cached solids may take, as estimated by
+	 *            {@link SolidCache#sizeOf(CSG)}.
+	 */
+	public ExprCache(long maxBytes) {
+		this.solids = new SolidCache<Expr>(maxBytes);
+	}
+
+	/**
+	 * @param expr
+	 * @return the cached solid for `expr`, or else the newly computed one.
+	 */
+	CSG evaluate(Expr expr) {
+		CSG cached = get(expr);
+		if (cached != null) {
+			return cached;
+		}
+		CSG csg = expr.compute(this);
+		put(expr, csg);
+		return csg;
+	}
+
+	/**
+	 * @param expr
+	 * @return the cached solid for `expr`, or null.
+	 */
+	public CSG get(Expr expr) {
+		return solids.get(expr);
+	}
+
+	void put(Expr expr, CSG csg) {
+		solids.put(expr, csg);
+	}
+
+	public void clear() {
+		solids.clear();
+	}
+
+	/**
+	 * @return the number of cached solids.
+	 */
+	public int size() {
+		return solids.size();
+	}
+
+	/**
+	 * @return the estimated memory taken by the cached solids.
+	 */
+	public long getBytes() {
+		return solids.getBytes();
+	}
+
+	public long getMaxBytes() {
+		return solids.getMaxBytes();
+	}
+
+	public long getHits() {
+		return solids.getHits();
+	}
+
+	public long getMisses() {
+		return solids.getMisses();
+	}
+}
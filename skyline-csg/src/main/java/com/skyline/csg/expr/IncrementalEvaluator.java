@@ -0,0 +1,270 @@
+package com.skyline.csg.expr;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * Evaluates successive versions of an edited {@link Expr} scene, redoing as
+ * little work as possible each time.
+ *
+ * The evaluator remembers, for every node of the last scene it evaluated, the
+ * resulting polygons, the BSP trees built from them, and which fragments each
+ * polygon was clipped down to. The new scene is matched against the old one
+ * node by node, by position. Unchanged subtrees are reused as-is, so only the
+ * path from an edited node up to the root is computed again.
+ *
+ * Each recomputed node also knows the region its result changed in: the old
+ * and new bounds of the edited node, carried up (and transformed) along the
+ * path. The result of a boolean operation can only change inside that region,
+ * so polygons of the unchanged operand that lie outside it keep the fragments
+ * they were clipped to last time. Only polygons touching the region are
+ * clipped again.
+ *
+ * The polygons are clipped one at a time by
+ * {@link CompiledCSG#clipLeftOperand(CompiledCSG.Op, List)} and
+ * {@link CompiledCSG#clipRightOperand(CompiledCSG.Op, List)}, the same way
+ * {@link CSG#union(CSG)}, {@link CSG#subtract(CSG)} and
+ * {@link CSG#intersect(CSG)} clip them, so the results enclose the same space
+ * as {@link Expr#evaluate()}. They are split
+ * into fewer fragments, though, since the result isn't run through another
+ * BSP build.
+ *
+ * @author philippd
+ */
+public class IncrementalEvaluator {
+
+	private final CSGOptions options;
+	private State root;
+	private CSG result;
+
+	// for the last evaluation.
+	private int computedNodes;
+	private int clippedPolygons;
+
+	public IncrementalEvaluator() {
+		this(new CSGOptions());
+	}
+
+	/**
+	 * @param options
+	 *            used to build the BSP trees.
+	 */
+	public IncrementalEvaluator(CSGOptions options) {
+		this.options = options;
+	}
+
+	/**
+	 * Evaluate `expr`, reusing whatever is left unchanged from the previously
+	 * evaluated scene.
+	 *
+	 * @param expr
+	 * @return the solid. Its polygons are shared with the evaluator's state,
+	 *         so don't change them in place.
+	 */
+	public synchronized CSG evaluate(Expr expr) {
+		computedNodes = 0;
+		clippedPolygons = 0;
+		State old = root;
+		root = update(old, expr);
+		if (root != old || result == null) {
+			result = CSG.fromPolygons(new ArrayList<Polygon>(root.polygons));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the region in which the result of the last
+	 *         {@link #evaluate(Expr)} differs from the one before it, or null if
+	 *         it didn't change.
+	 */
+	public synchronized BoundingBox getChangedRegion() {
+		return root == null ? null : root.changed;
+	}
+
+	/**
+	 * Drop all remembered state. The next evaluation starts from scratch.
+	 */
+	public synchronized void clear() {
+		root = null;
+		result = null;
+	}
+
+	/**
+	 * @return the number of nodes computed by the last evaluation, rather than
+	 *         reused.
+	 */
+	synchronized int getComputedNodes() {
+		return computedNodes;
+	}
+
+	/**
+	 * @return the number of polygons clipped by the last evaluation, rather
+	 *         than reused.
+	 */
+	synchronized int getClippedPolygons() {
+		return clippedPolygons;
+	}
+
+	/**
+	 * @param old
+	 *            the state of the node at the same position in the previous
+	 *            scene, or null.
+	 * @param expr
+	 * @return the state for `expr`.
+	 */
+	private State update(State old, Expr expr) {
+		if (old != null && old.expr.equals(expr)) {
+			old.changed = null;
+			return old;
+		}
+		computedNodes++;
+		State state;
+		if (expr instanceof BooleanExpr) {
+			BooleanExpr e = (BooleanExpr) expr;
+			BooleanState prev = old instanceof BooleanState ? (BooleanState) old : null;
+			BooleanState s = new BooleanState(e);
+			s.left = update(prev == null ? null : prev.left, e.left);
+			s.right = update(prev == null ? null : prev.right, e.right);
+			s.clip(prev != null && ((BooleanExpr) prev.expr).op == e.op ? prev : null);
+			state = s;
+		} else if (expr instanceof TransformExpr) {
+			TransformExpr e = (TransformExpr) expr;
+			TransformState prev = old instanceof TransformState ? (TransformState) old : null;
+			TransformState s = new TransformState(e);
+			s.child = update(prev == null ? null : prev.child, e.child);
+			s.transform(prev != null && Arrays.equals(((TransformExpr) prev.expr).matrix, e.matrix) ? prev : null);
+			state = s;
+		} else {
+			state = new State(expr);
+			state.setPolygons(expr.compute(null).getPolygons());
+		}
+		if (state.changed == null) {
+			// computed from scratch.
+			state.changed = old == null ? state.bounds : old.bounds.union(state.bounds);
+		}
+		return state;
+	}
+
+	/**
+	 * The evaluated result of one node of the scene.
+	 */
+	private class State {
+		final Expr expr;
+		List<Polygon> polygons;
+		BoundingBox bounds;
+		// where the polygons differ from the previous version of this node,
+		// or null if they don't.
+		BoundingBox changed;
+
+		// the polygons, compiled the first time another operand is clipped
+		// against them.
+		private CompiledCSG compiled;
+
+		State(Expr expr) {
+			this.expr = expr;
+		}
+
+		void setPolygons(List<Polygon> polygons) {
+			this.polygons = polygons;
+			this.bounds = BoundingBox.of(polygons);
+		}
+
+		CompiledCSG compiled() {
+			if (compiled == null) {
+				compiled = CompiledCSG.wrap(polygons, options);
+			}
+			return compiled;
+		}
+	}
+
+	private class TransformState extends State {
+		State child;
+		// the transformed copy of each of the child's polygons.
+		final Map<Polygon, Polygon> transformed = new IdentityHashMap<Polygon, Polygon>();
+
+		TransformState(TransformExpr expr) {
+			super(expr);
+		}
+
+		/**
+		 * @param prev
+		 *            the previous state, if it had the same matrix. Its
+		 *            transformed polygons are reused.
+		 */
+		void transform(TransformState prev) {
+			Matrix4d matrix = ((TransformExpr) expr).matrix();
+			List<Polygon> missing = new ArrayList<Polygon>();
+			for (Polygon p : child.polygons) {
+				if (prev == null || !prev.transformed.containsKey(p)) {
+					missing.add(p);
+				}
+			}
+			Iterator<Polygon> baked = CSG.fromPolygons(missing).transform(matrix).getPolygons().iterator();
+			List<Polygon> polygons = new ArrayList<Polygon>(child.polygons.size());
+			for (Polygon p : child.polygons) {
+				Polygon t = prev == null ? null : prev.transformed.get(p);
+				if (t == null) {
+					t = baked.next();
+				}
+				transformed.put(p, t);
+				polygons.add(t);
+			}
+			setPolygons(polygons);
+			if (prev != null && child.changed != null) {
+				changed = child.changed.transform(matrix);
+			}
+		}
+	}
+
+	private class BooleanState extends State {
+		State left, right;
+		// the fragments each polygon of either operand was clipped to.
+		final Map<Polygon, List<Polygon>> leftParts = new IdentityHashMap<Polygon, List<Polygon>>();
+		final Map<Polygon, List<Polygon>> rightParts = new IdentityHashMap<Polygon, List<Polygon>>();
+
+		BooleanState(BooleanExpr expr) {
+			super(expr);
+		}
+
+		/**
+		 * Clip each operand against the other.
+		 *
+		 * @param prev
+		 *            the previous state, if it was the same operation.
+		 *            Polygons it has fragments for, which are outside the
+		 *            region where the other operand changed, aren't clipped
+		 *            again.
+		 */
+		void clip(BooleanState prev) {
+			CompiledCSG.Op op = ((BooleanExpr) expr).op;
+			double epsilon = options.effectiveTolerance().getPosition();
+			List<Polygon> polygons = new ArrayList<Polygon>(left.polygons.size() + right.polygons.size());
+			for (Polygon p : left.polygons) {
+				List<Polygon> parts = prev == null ? null : prev.leftParts.get(p);
+				if (parts == null || (right.changed != null && right.changed.intersects(p, epsilon))) {
+					parts = right.compiled().clipLeftOperand(op, Collections.singletonList(p));
+					clippedPolygons++;
+				}
+				leftParts.put(p, parts);
+				polygons.addAll(parts);
+			}
+			for (Polygon p : right.polygons) {
+				List<Polygon> parts = prev == null ? null : prev.rightParts.get(p);
+				if (parts == null || (left.changed != null && left.changed.intersects(p, epsilon))) {
+					parts = left.compiled().clipRightOperand(op, Collections.singletonList(p));
+					clippedPolygons++;
+				}
+				rightParts.put(p, parts);
+				polygons.addAll(parts);
+			}
+			setPolygons(polygons);
+			if (prev != null) {
+				changed = left.changed == null ? right.changed
+						: right.changed == null ? left.changed : left.changed.union(right.changed);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.skyline.csg.expr;
+
+import java.util.*;
+
+import com.skyline.csg.*;
+import com.skyline.csg.geom.*;
+
+/**
+ * A leaf of the expression graph: one of the primitives from
+ * {@link com.skyline.csg.geom}, with its constructor arguments. Made by the
+ * shared {@link Primitives} factory.
+ *
+ * @author philippd
+ */
+final class PrimitiveExpr extends Expr {
+
+	enum Kind {
+		BOX, SPHERE, CYLINDER
+	}
+
+	private final Kind kind;
+	private final double[] params;
+
+	PrimitiveExpr(Kind kind, double... params) {
+		super(kind.ordinal() * 31 + Arrays.hashCode(params));
+		this.kind = kind;
+		this.params = params.clone();
+	}
+
+	@Override
+	CSG compute(ExprCache cache) {
+		switch (kind) {
+		case BOX:
+			return Primitives.shared().box(params[0], params[1], params[2]);
+		case SPHERE:
+			return Primitives.shared().sphere(params[0], (int) params[1]);
+		case CYLINDER:
+			return Primitives.shared().cylinder(params[0], params[1], (int) params[2]);
+		default:
+			throw new AssertionError(kind);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof PrimitiveExpr) || obj.hashCode() != hashCode()) {
+			return false;
+		}
+		PrimitiveExpr other = (PrimitiveExpr) obj;
+		return kind == other.kind && Arrays.equals(params, other.params);
+	}
+
+	@Override
+	public String toString() {
+		String retval = kind.name().toLowerCase() + "(";
+		for (int i = 0; i < params.length; i++) {
+			retval += (i > 0 ? ", " : "") + params[i];
+		}
+		return retval + ")";
+	}
+}
@@ -0,0 +1,76 @@
+package com.skyline.csg.expr;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * An expression moved by an affine matrix. A transform of a transform is
+ * folded into one node, so the graph (and the cache) only sees the combined
+ * matrix.
+ *
+ * @author philippd
+ */
+final class TransformExpr extends Expr {
+
+	final Expr child;
+	// row-major, the order Matrix4d(double[]) expects. Compared bitwise, so
+	// it agrees with the hash.
+	final double[] matrix;
+
+	TransformExpr(Expr child, Matrix4d transform) {
+		this(unwrap(child), combine(child, transform));
+	}
+
+	private TransformExpr(Expr child, double[] matrix) {
+		super(child.hashCode() * 31 + Arrays.hashCode(matrix));
+		this.child = child;
+		this.matrix = matrix;
+	}
+
+	private static Expr unwrap(Expr child) {
+		return child instanceof TransformExpr ? ((TransformExpr) child).child : child;
+	}
+
+	private static double[] combine(Expr child, Matrix4d transform) {
+		Matrix4d m = new Matrix4d(transform);
+		if (child instanceof TransformExpr) {
+			m.mul(new Matrix4d(((TransformExpr) child).matrix));
+		}
+		double[] retval = new double[16];
+		for (int row = 0; row < 4; row++) {
+			for (int col = 0; col < 4; col++) {
+				retval[row * 4 + col] = m.getElement(row, col);
+			}
+		}
+		return retval;
+	}
+
+	Matrix4d matrix() {
+		return new Matrix4d(matrix);
+	}
+
+	@Override
+	CSG compute(ExprCache cache) {
+		return child.evaluate(cache).transform(matrix());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof TransformExpr) || obj.hashCode() != hashCode()) {
+			return false;
+		}
+		TransformExpr other = (TransformExpr) obj;
+		return Arrays.equals(matrix, other.matrix) && child.equals(other.child);
+	}
+
+	@Override
+	public String toString() {
+		return "transform(" + child + ", " + Arrays.toString(matrix) + ")";
+	}
+}
@@ -86,7 +86,6 @@ public class Box extends CSG {
 				int xVal = (2 * ((i & 1) != 0 ? 1 : 0) - 1);
 				int yVal = (2 * ((i & 2) != 0 ? 1 : 0) - 1);
 				int zVal = (2 * ((i & 4) != 0 ? 1 : 0) - 1);
-				System.out.println("Box vertex at (" + (center.x + this.width / 2 * xVal) + ", " + (center.x + this.height / 2 * yVal) + ", " + (center.x + this.depth / 2 * zVal) + ")");
 				Vector3d pos = new Vector3d(
 						center.x + this.width / 2 * xVal,
 						center.y + this.height / 2 * yVal,
@@ -57,8 +57,6 @@ public class Cone extends Cylinder {
 																// start point.
 		Vertex end = new Vertex(e, axisZ, new TexCoord2f()); // Vertex for the
 																// end point.
-		System.out.println("START: " + start.toString());
-		System.out.println("END: " + end.toString());
 
 		this.polygons = new ArrayList<Polygon>();
 		for (int i = 0; i < slices; i++) {
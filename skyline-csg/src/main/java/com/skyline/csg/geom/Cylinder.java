@@ -66,10 +66,8 @@ public class Cylinder extends CSG {
 		// TODO: This will break textures.
 		Vertex start = new Vertex(s, negZ, new TexCoord2f()); // Vertex for the
 																// start point.
-		System.out.println("START: " + start.toString());
 		Vertex end = new Vertex(e, axisZ, new TexCoord2f()); // Vertex for the
 																// end point.
-		System.out.println("END: " + end.toString());
 
 		this.polygons = new ArrayList<Polygon>();
 		for (int i = 0; i < slices; i++) {
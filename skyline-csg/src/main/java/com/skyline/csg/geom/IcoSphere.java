@@ -0,0 +1,163 @@
+package com.skyline.csg.geom;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * A sphere made by subdividing an {@link Icosahedron} `lod` times. Each
+ * subdivision splits every triangle into four at its edge midpoints, pushed
+ * out onto the sphere, so there are 20 * 4^lod triangles.
+ *
+ * The subdivision works on vertex indices on the unit sphere, and each edge's
+ * midpoint is made once and shared by both triangles on the edge. Polygons are
+ * only made at the end, at the radius, with all arrays sized exactly up front.
+ * Vertices are shared by the polygons around them, which is safe since
+ * polygons are transformed copy on write (see
+ * {@link Polygon#translate(Vector3d)}). Normals are smooth, except
+ * at lod 0, which is the icosahedron itself.
+ *
+ * @author philippd
+ */
+public class IcoSphere extends CSG {
+
+	private final double radius;
+	private final int lod;
+
+	public IcoSphere(double radius, int lod) {
+		this.radius = radius;
+		this.lod = lod;
+		this.polygons = generate(radius, lod);
+	}
+
+	/**
+	 * @param radius
+	 * @param lod
+	 *            number of subdivisions. Each one quadruples the triangles.
+	 * @return the 20 * 4^lod triangles.
+	 */
+	static List<Polygon> generate(double radius, int lod) {
+		assert lod >= 0 && lod <= 12 : "lod must be between 0 and 12.";
+		int faceCount = 20 << 2 * lod;
+		// V - E + F = 2, with E = 3F / 2.
+		int vertexCount = faceCount / 2 + 2;
+
+		double[] unit = new double[3 * vertexCount];
+		int vertices = 0;
+		for (double[] v : Icosahedron.VERTICES) {
+			double length = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+			unit[3 * vertices] = v[0] / length;
+			unit[3 * vertices + 1] = v[1] / length;
+			unit[3 * vertices + 2] = v[2] / length;
+			vertices++;
+		}
+
+		int[] faces = new int[3 * faceCount], next = new int[3 * faceCount];
+		int n = 0;
+		for (int[] f : Icosahedron.FACES) {
+			n = face(faces, n, f[0], f[1], f[2]);
+		}
+
+		int count = Icosahedron.FACES.length;
+		for (int level = 0; level < lod; level++) {
+			// edges are shared by two triangles. The second one takes the
+			// midpoint out again, so this stays small.
+			Map<Long, Integer> midpoints = new HashMap<Long, Integer>();
+			n = 0;
+			for (int i = 0; i < count; i++) {
+				int a = faces[3 * i], b = faces[3 * i + 1], c = faces[3 * i + 2];
+				int ab = midpoint(a, b, midpoints, unit, vertices);
+				if (ab == vertices) {
+					vertices++;
+				}
+				int bc = midpoint(b, c, midpoints, unit, vertices);
+				if (bc == vertices) {
+					vertices++;
+				}
+				int ca = midpoint(c, a, midpoints, unit, vertices);
+				if (ca == vertices) {
+					vertices++;
+				}
+				n = face(next, n, a, ab, ca);
+				n = face(next, n, ab, b, bc);
+				n = face(next, n, ab, bc, ca);
+				n = face(next, n, ca, bc, c);
+			}
+			int[] swap = faces;
+			faces = next;
+			next = swap;
+			count *= 4;
+		}
+		assert vertices == vertexCount && count == faceCount;
+
+		List<Polygon> retval = new ArrayList<Polygon>(faceCount);
+		TexCoord2f tex = new TexCoord2f();
+		if (lod == 0) {
+			// flat: each corner's normal is its face's.
+			Vector3d[] pos = new Vector3d[3];
+			Vector3d u = new Vector3d(), v = new Vector3d(), normal = new Vector3d();
+			for (int i = 0; i < count; i++) {
+				for (int j = 0; j < 3; j++) {
+					int k = 3 * faces[3 * i + j];
+					pos[j] = new Vector3d(unit[k] * radius, unit[k + 1] * radius, unit[k + 2] * radius);
+				}
+				u.sub(pos[1], pos[0]);
+				v.sub(pos[2], pos[0]);
+				normal.cross(u, v);
+				normal.normalize();
+				retval.add(new Polygon(new Vertex(pos[0], normal, tex), new Vertex(pos[1], normal, tex), new Vertex(pos[2], normal, tex)));
+			}
+			return retval;
+		}
+
+		Vertex[] shared = new Vertex[vertexCount];
+		Vector3d pos = new Vector3d(), normal = new Vector3d();
+		for (int i = 0; i < vertexCount; i++) {
+			normal.set(unit[3 * i], unit[3 * i + 1], unit[3 * i + 2]);
+			pos.scale(radius, normal);
+			shared[i] = new Vertex(pos, normal, tex);
+		}
+		for (int i = 0; i < count; i++) {
+			retval.add(new Polygon(shared[faces[3 * i]], shared[faces[3 * i + 1]], shared[faces[3 * i + 2]]));
+		}
+		return retval;
+	}
+
+	/**
+	 * @return the index of the midpoint of `a` and `b`. If there isn't one yet,
+	 *         it's made at `created`.
+	 */
+	private static int midpoint(int a, int b, Map<Long, Integer> midpoints, double[] unit, int created) {
+		long key = a < b ? (long) a << 32 | b : (long) b << 32 | a;
+		Integer retval = midpoints.remove(key);
+		if (retval != null) {
+			return retval;
+		}
+		double x = unit[3 * a] + unit[3 * b];
+		double y = unit[3 * a + 1] + unit[3 * b + 1];
+		double z = unit[3 * a + 2] + unit[3 * b + 2];
+		double length = Math.sqrt(x * x + y * y + z * z);
+		unit[3 * created] = x / length;
+		unit[3 * created + 1] = y / length;
+		unit[3 * created + 2] = z / length;
+		midpoints.put(key, created);
+		return created;
+	}
+
+	private static int face(int[] faces, int n, int a, int b, int c) {
+		faces[n] = a;
+		faces[n + 1] = b;
+		faces[n + 2] = c;
+		return n + 3;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public int getLod() {
+		return lod;
+	}
+}
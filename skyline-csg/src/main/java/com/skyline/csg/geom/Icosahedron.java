@@ -8,6 +8,23 @@ import com.skyline.csg.*;
 
 public class Icosahedron extends CSG {
 
+	private static final double T = (1 + Math.sqrt(5)) / 2;
+
+	// corners, not yet normalized, and faces, wound outwards. Also the start
+	// of every IcoSphere.
+	static final double VERTICES[][] = {
+			{ -1, T, 0 }, { 1, T, 0 }, { -1, -T, 0 }, { 1, -T, 0 },
+			{ 0, -1, T }, { 0, 1, T }, { 0, -1, -T }, { 0, 1, -T },
+			{ T, 0, -1 }, { T, 0, 1 }, { -T, 0, -1 }, { -T, 0, 1 }
+	};
+
+	static final int FACES[][] = {
+			{ 0, 11, 5 }, { 0, 5, 1 }, { 0, 1, 7 }, { 0, 7, 10 }, { 0, 10, 11 },
+			{ 1, 5, 9 }, { 5, 11, 4 }, { 11, 10, 2 }, { 10, 7, 6 }, { 7, 1, 8 },
+			{ 3, 9, 4 }, { 3, 4, 2 }, { 3, 2, 6 }, { 3, 6, 8 }, { 3, 8, 9 },
+			{ 4, 9, 5 }, { 2, 4, 11 }, { 6, 2, 10 }, { 8, 6, 7 }, { 9, 8, 1 }
+	};
+
 	protected double radius = 1d;
 
 	public Icosahedron(double radius) {
@@ -19,24 +36,19 @@ public class Icosahedron extends CSG {
 		generatePolys();
 	}
 
+	/**
+	 * For subclasses that make their own polygons. Nothing is generated here.
+	 */
+	protected Icosahedron(double radius, List<Polygon> polygons) {
+		this.radius = radius;
+		this.polygons = polygons;
+	}
+
 	protected void generatePolys() {
-		System.out.println("Icosahedron.generatePolys");
 		this.polygons = new ArrayList<Polygon>();
 
-		double t = (1 + Math.sqrt(5)) / 2;
-
-		double v[][] = {
-				{ -1, t, 0 }, { 1, t, 0 }, { -1, -t, 0 }, { 1, -t, 0 },
-				{ 0, -1, t }, { 0, 1, t }, { 0, -1, -t }, { 0, 1, -t },
-				{ t, 0, -1 }, { t, 0, 1 }, { -t, 0, -1 }, { -t, 0, 1 }
-		};
-
-		int f[][] = {
-				{ 0, 11, 5 }, { 0, 5, 1 }, { 0, 1, 7 }, { 0, 7, 10 }, { 0, 10, 11 },
-				{ 1, 5, 9 }, { 5, 11, 4 }, { 11, 10, 2 }, { 10, 7, 6 }, { 7, 1, 8 },
-				{ 3, 9, 4 }, { 3, 4, 2 }, { 3, 2, 6 }, { 3, 6, 8 }, { 3, 8, 9 },
-				{ 4, 9, 5 }, { 2, 4, 11 }, { 6, 2, 10 }, { 8, 6, 7 }, { 9, 8, 1 }
-		};
+		double v[][] = VERTICES;
+		int f[][] = FACES;
 
 		for (int i = 0; i < f.length; i++) {
 			// for each face
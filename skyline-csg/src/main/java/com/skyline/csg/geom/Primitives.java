@@ -0,0 +1,207 @@
+package com.skyline.csg.geom;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * Makes the primitives of this package without generating them every time.
+ * Each shape is generated once at unit size for its tessellation (a sphere's
+ * lod, a cylinder's slices, ...) and cached. Every solid asked for is a
+ * scaled copy of it, through {@link CSG#transform(Matrix4d)}, so it costs a
+ * matrix until its polygons are needed, and then a copy instead of the trig.
+ *
+ * The results are the same solids the constructors make. When the estimated
+ * size of the cached shapes goes over the limit, the least recently used ones
+ * are dropped. Safe to share between threads.
+ *
+ * @author philippd
+ */
+public class Primitives {
+
+	public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+	private static final Primitives SHARED = new Primitives();
+
+	private enum Kind {
+		BOX, ICOSAHEDRON, SPHERE, CYLINDER, CONE, TORUS
+	}
+
+	private final SolidCache<Key> units;
+
+	/**
+	 * A shape and its tessellation. Sizes aren't part of it.
+	 */
+	private static final class Key {
+		final Kind kind;
+		final double[] params;
+
+		Key(Kind kind, double... params) {
+			this.kind = kind;
+			this.params = params;
+		}
+
+		@Override
+		public int hashCode() {
+			return kind.ordinal() * 31 + Arrays.hashCode(params);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return kind == other.kind && Arrays.equals(params, other.params);
+		}
+	}
+
+	public Primitives() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param maxBytes
+	 *            the most memory the cached unit shapes may take, as
+	 *            estimated by {@link SolidCache#sizeOf(CSG)}.
+	 */
+	public Primitives(long maxBytes) {
+		this.units = new SolidCache<Key>(maxBytes);
+	}
+
+	/**
+	 * @return a factory shared by the whole application.
+	 */
+	public static Primitives shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Same as {@link Box#Box(double, double, double)}.
+	 */
+	public CSG box(double width, double height, double depth) {
+		Key key = new Key(Kind.BOX);
+		CSG unit = get(key);
+		if (unit == null) {
+			unit = put(key, new Box(1, 1, 1));
+		}
+		return scaled(unit, width, height, depth);
+	}
+
+	/**
+	 * Same as {@link Icosahedron#Icosahedron(double)}.
+	 */
+	public CSG icosahedron(double radius) {
+		Key key = new Key(Kind.ICOSAHEDRON);
+		CSG unit = get(key);
+		if (unit == null) {
+			unit = put(key, new Icosahedron(1));
+		}
+		return scaled(unit, radius, radius, radius);
+	}
+
+	/**
+	 * Same as {@link Sphere#Sphere(double, int)}.
+	 */
+	public CSG sphere(double radius, int lod) {
+		Key key = new Key(Kind.SPHERE, lod);
+		CSG unit = get(key);
+		if (unit == null) {
+			unit = put(key, new Sphere(1, lod));
+		}
+		return scaled(unit, radius, radius, radius);
+	}
+
+	/**
+	 * Same as {@link Cylinder#Cylinder(double, double, int)}.
+	 */
+	public CSG cylinder(double radius, double height, int slices) {
+		Key key = new Key(Kind.CYLINDER, slices);
+		CSG unit = get(key);
+		if (unit == null) {
+			unit = put(key, new Cylinder(1, 1, slices));
+		}
+		return scaled(unit, radius, height, radius);
+	}
+
+	/**
+	 * Same as {@link Cone#Cone(double, double, int)}.
+	 */
+	public CSG cone(double radius, double height, int slices) {
+		Key key = new Key(Kind.CONE, slices);
+		CSG unit = get(key);
+		if (unit == null) {
+			unit = put(key, new Cone(1, 1, slices));
+		}
+		return scaled(unit, radius, height, radius);
+	}
+
+	/**
+	 * Same as {@link Torus#Torus(int, int, double, double)}. Tori are cached by
+	 * the ratio of their radii, at an outer radius of 1.
+	 */
+	public CSG torus(int circleSamples, int radialSamples, double innerRadius, double outerRadius) {
+		if (outerRadius == 0) {
+			return new Torus(circleSamples, radialSamples, innerRadius, outerRadius);
+		}
+		double ratio = innerRadius / outerRadius;
+		Key key = new Key(Kind.TORUS, circleSamples, radialSamples, ratio);
+		CSG unit = get(key);
+		if (unit == null) {
+			unit = put(key, new Torus(circleSamples, radialSamples, ratio, 1));
+		}
+		return scaled(unit, outerRadius, outerRadius, outerRadius);
+	}
+
+	private static CSG scaled(CSG unit, double x, double y, double z) {
+		return unit.scale(new Vector3d(x, y, z));
+	}
+
+	private CSG get(Key key) {
+		return units.get(key);
+	}
+
+	/**
+	 * Cache a snapshot of `unit`, so nobody can change the polygons the scaled
+	 * copies share.
+	 *
+	 * @return the snapshot.
+	 */
+	private CSG put(Key key, CSG unit) {
+		CSG csg = unit.snapshot();
+		units.put(key, csg);
+		return csg;
+	}
+
+	public void clear() {
+		units.clear();
+	}
+
+	/**
+	 * @return the number of cached unit shapes.
+	 */
+	public int size() {
+		return units.size();
+	}
+
+	/**
+	 * @return the estimated memory taken by the cached unit shapes.
+	 */
+	public long getBytes() {
+		return units.getBytes();
+	}
+
+	public long getMaxBytes() {
+		return units.getMaxBytes();
+	}
+
+	public long getHits() {
+		return units.getHits();
+	}
+
+	public long getMisses() {
+		return units.getMisses();
+	}
+}
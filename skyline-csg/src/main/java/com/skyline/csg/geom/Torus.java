@@ -105,8 +105,6 @@ public class Torus extends CSG {
 		 // texs.add(new TexCoord2f(i * 2 + 1, 1.0f));
 		 }
 
-		System.out.println("vertCount: " + (circleSamples * radialSamples) + ", pos.size: " + pos.size() + ", normals: " + normals.size() + ", texs: " + texs.size());
-
 		for (int iV = circleSamples; iV < pos.size() - 1; iV++) {
 			Vertex v1, v2, v3;
 			v1 = new Vertex(pos.get(iV), normals.get(iV), texs.get(iV));
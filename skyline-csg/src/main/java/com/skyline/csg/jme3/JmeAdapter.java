@@ -9,6 +9,7 @@ import com.jme3.math.*;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.*;
 import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.Node;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.mesh.*;
 import com.jme3.util.*;
@@ -30,6 +31,12 @@ public class JmeAdapter {
 	// Geometries provide Transform information (as well as a ton of other crap
 	// we don't use).
 
+	/**
+	 * The most vertices a mesh can have and still use 16-bit indices. Larger
+	 * meshes get 32-bit indices.
+	 */
+	public static final int MAX_SHORT_INDEXED_VERTICES = 1 << 16;
+
 	private JmeAdapter() {
 	}
 
@@ -48,9 +55,9 @@ public class JmeAdapter {
 
 	/**
 	 * Create a CSG from the provided mesh, and apply the provided
-	 * transformation in order (translation, rotation and scale). NOTE: CSG
-	 * representations do not track transform. The transform will not be
-	 * returned in calls to fromCSG later on.
+	 * transformation the way jME3 does (scale, then rotation, then
+	 * translation). NOTE: CSG representations do not track transform. The
+	 * transform will not be returned in calls to fromCSG later on.
 	 * 
 	 * @param m
 	 * @param t
@@ -62,9 +69,10 @@ public class JmeAdapter {
 
 	/**
 	 * Create a CSG from the provided mesh, and apply the provided
-	 * transformations in order (translation, rotation and scale). NOTE: CSG
-	 * representations do not track transform. The transform will not be
-	 * returned in calls to fromCSG later on.
+	 * transformations the way jME3 does (scale, then rotation, then
+	 * translation). Any of them may be null. NOTE: CSG representations do not
+	 * track transform. The transform will not be returned in calls to fromCSG
+	 * later on.
 	 * 
 	 * @param g
 	 * @param translation
@@ -73,65 +81,129 @@ public class JmeAdapter {
 	 * @return
 	 */
 	public static CSG toCSG(Geometry g, Vector3f translation, Quaternion rotation, Vector3f scale) {
-		CSG retval = null;
-		// TODO: We don't correctly handle textureCoords
-
 		Mesh m = g.getMesh();
-
-		if (m != null) {
-			long t0 = System.currentTimeMillis();
-			retval = toCSG(m);
-			long t2 = 0, t1 = System.currentTimeMillis() - t0;
-			if (retval != null) {
-				if (translation != null && (translation.x != 0d || translation.y != 0d || translation.z != 0d))
-					retval.translate(new Vector3d(translation.x, translation.y, translation.z));
-				if (rotation != null && (rotation.getX() != 0d || rotation.getY() != 0d || rotation.getZ() != 0d))
-					retval.rotate(new Quat4d(rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW()));
-				if (scale != null && (scale.x != 1d || scale.y != 1d || scale.z != 1d))
-					retval.scale(new Vector3d(scale.x, scale.y, scale.z));
-				t2 = System.currentTimeMillis() - t0;
-			}
-			System.out.printf("toCSG time: %d\ntransform time:%d\n", t1, t2 - t1);
+		if (m == null) {
+			return null;
 		}
-		return retval;
+		Matrix3d rotationMatrix = null;
+		if (rotation != null && (rotation.getX() != 0d || rotation.getY() != 0d || rotation.getZ() != 0d)) {
+			rotationMatrix = new Matrix3d();
+			rotationMatrix.set(new Quat4d(rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW()));
+		}
+		if (translation != null && translation.x == 0d && translation.y == 0d && translation.z == 0d) {
+			translation = null;
+		}
+		if (scale != null && scale.x == 1d && scale.y == 1d && scale.z == 1d) {
+			scale = null;
+		}
+		return toCSG(m, translation, rotationMatrix, scale);
 	}
 
 	public static CSG toCSG(Mesh m) {
-		CSG retval = null;
-		List<Polygon> polygons = new ArrayList<Polygon>();
-		if (m.getMode() == Mode.Triangles) {
-			VertexBuffer pb = m.getBuffer(Type.Position);
-			VertexBuffer nb = m.getBuffer(Type.Normal);
-			VertexBuffer tb = m.getBuffer(Type.TexCoord);
-			IndexBuffer ib = m.getIndicesAsList();
-
-			FloatBuffer pfb = (FloatBuffer) pb.getData();
-			FloatBuffer nfb = (FloatBuffer) nb.getData();
-			FloatBuffer tsb = (FloatBuffer) tb.getData();
-
-			int vCount = ib.size();
-
-			List<Vertex> vertices = new ArrayList<Vertex>();
-			for (int i = 0; i < vCount; i++) {
-				int rawIdx = ib.get(i);
-				int idx = rawIdx * 3;
-
-				Vector3d pos = new Vector3d(pfb.get(idx), pfb.get(idx + 1), pfb.get(idx + 2));
-				Vector3d norm = new Vector3d(nfb.get(idx), nfb.get(idx + 1), nfb.get(idx + 2));
-				TexCoord2f tex = new TexCoord2f(tsb.get(rawIdx * 2), tsb.get(rawIdx * 2 + 1));
-
-				// System.out.printf("%d\t%f\t%f\t%f\t%f\t%f\t%f\n",rawIdx,pos.x,pos.y,pos.z,norm.x,norm.y,norm.z);
-				Vertex v = new Vertex(pos, norm, tex);
-				vertices.add(v);
-
-				if ((i + 1) % 3 == 0) { // every three points
-					polygons.add(new Polygon(vertices));
-					vertices = new ArrayList<Vertex>();
+		return toCSG(m, null, null, null);
+	}
+
+	/**
+	 * Bulk-read the mesh's buffers, transform each mesh vertex once, then
+	 * build the polygons. Triangles that share a mesh index share its
+	 * {@link Vertex}, since polygons never change their vertices in place.
+	 */
+	private static CSG toCSG(Mesh m, Vector3f translation, Matrix3d rotation, Vector3f scale) {
+		if (m.getMode() != Mode.Triangles) {
+			return null;
+		}
+		double[] positions = readDoubles(m, Type.Position);
+		int count = positions.length / 3;
+		double[] normals = readDoubles(m, Type.Normal);
+		if (normals == null) {
+			normals = new double[count * 3];
+		}
+		float[] texCoords = readFloats(m, Type.TexCoord);
+		if (texCoords == null) {
+			texCoords = new float[count * 2];
+		}
+
+		if (translation != null || rotation != null || scale != null) {
+			Vector3d p = new Vector3d(), n = new Vector3d();
+			for (int i = 0; i < count * 3; i += 3) {
+				p.set(positions[i], positions[i + 1], positions[i + 2]);
+				n.set(normals[i], normals[i + 1], normals[i + 2]);
+				if (scale != null) {
+					p.set(p.x * scale.x, p.y * scale.y, p.z * scale.z);
+					// normals scale by the inverse.
+					n.set(n.x / scale.x, n.y / scale.y, n.z / scale.z);
+				}
+				if (rotation != null) {
+					rotation.transform(p);
+					rotation.transform(n);
+				}
+				if (translation != null) {
+					p.set(p.x + translation.x, p.y + translation.y, p.z + translation.z);
 				}
+				if (scale != null && n.lengthSquared() > 0) {
+					n.normalize();
+				}
+				positions[i] = p.x;
+				positions[i + 1] = p.y;
+				positions[i + 2] = p.z;
+				normals[i] = n.x;
+				normals[i + 1] = n.y;
+				normals[i + 2] = n.z;
 			}
-			// System.out.println("========");
-			// verified up to here that Vertex information is correct.
-			retval = CSG.fromPolygons(polygons);
+		}
+		// a mirroring scale turns the triangles inside out.
+		boolean mirrored = scale != null && scale.x * scale.y * scale.z < 0;
+
+		IndexBuffer ib = m.getIndicesAsList();
+		int iCount = ib.size() - ib.size() % 3;
+		List<Polygon> polygons = new ArrayList<Polygon>(iCount / 3);
+		// one per mesh index, made the first time a triangle uses it.
+		Vertex[] shared = new Vertex[count];
+		// the Vertex constructor copies these.
+		Vector3d pos = new Vector3d(), norm = new Vector3d();
+		TexCoord2f tex = new TexCoord2f();
+		for (int i = 0; i < iCount; i += 3) {
+			List<Vertex> vertices = new ArrayList<Vertex>(3);
+			for (int j = 0; j < 3; j++) {
+				int idx = ib.get(mirrored ? i + 2 - j : i + j);
+				if (shared[idx] == null) {
+					pos.set(positions[idx * 3], positions[idx * 3 + 1], positions[idx * 3 + 2]);
+					norm.set(normals[idx * 3], normals[idx * 3 + 1], normals[idx * 3 + 2]);
+					tex.set(texCoords[idx * 2], texCoords[idx * 2 + 1]);
+					shared[idx] = new Vertex(pos, norm, tex);
+				}
+				vertices.add(shared[idx]);
+			}
+			polygons.add(new Polygon(vertices));
+		}
+		return CSG.fromPolygons(polygons);
+	}
+
+	/**
+	 * @return a copy of all the data in the mesh's `type` buffer, or null if
+	 *         it doesn't have one.
+	 */
+	private static float[] readFloats(Mesh m, Type type) {
+		VertexBuffer vb = m.getBuffer(type);
+		if (vb == null) {
+			return null;
+		}
+		// duplicate, so the buffer's own position is left alone.
+		FloatBuffer fb = ((FloatBuffer) vb.getData()).duplicate();
+		fb.rewind();
+		float[] data = new float[fb.limit()];
+		fb.get(data);
+		return data;
+	}
+
+	private static double[] readDoubles(Mesh m, Type type) {
+		float[] data = readFloats(m, type);
+		if (data == null) {
+			return null;
+		}
+		double[] retval = new double[data.length];
+		for (int i = 0; i < data.length; i++) {
+			retval[i] = data[i];
 		}
 		return retval;
 	}
@@ -140,6 +212,10 @@ public class JmeAdapter {
 	 * Return a JME3 Mesh object, representing the CSG operation. NOTE: No Local
 	 * Transform information is provided.
 	 * 
+	 * Polygons are fanned into triangles, and vertices that match to within
+	 * {@link VertexWelder#QUANTUM} in position, normal and texture coordinates
+	 * are merged.
+	 * 
 	 * @param csg
 	 * @return
 	 * @verified: Deduping works correctly.
@@ -149,102 +225,87 @@ public class JmeAdapter {
 
 		List<Polygon> pList = csg.getPolygons();
 
-		// Temp vars, to hold position, normals, and indices.
-		// We can't write this directly to a FloatBuffer, since we don't know
-		// the size of the un-duped buffers
-		List<Float> positions = new ArrayList<Float>();
-		List<Float> normals = new ArrayList<Float>();
-		List<Float> texCoords = new ArrayList<Float>();
-		List<Short> indices = new ArrayList<Short>();
-
-		short vCount = 0; // vertex count
-		// Set of unique vertices, and their indices in the position and normal
-		// lists.
-		Map<String, Short> uniqueVerts = new HashMap<String, Short>();
-		int ddCount = 0;
+		int corners = 0;
+		for (Polygon p : pList) {
+			corners += (p.getVertices().size() - 2) * 3;
+		}
+		// most vertices are shared by a few triangles.
+		VertexWelder welder = new VertexWelder(corners / 4);
+		int[] indices = new int[corners];
+		int iCount = 0;
 		for (Polygon p : pList) { // for each polygon ...
-			// clone the vertex list, so we can remove dupes.
-			List<Vertex> vList = new ArrayList<Vertex>(p.getVertices());
-			assert vList.size() >= 3;
+			List<Vertex> vList = p.getVertices();
+			int size = vList.size();
+			assert size >= 3;
 
-			if (vList.get(0).equals(vList.get(vList.size() - 1))) {
+			if (vList.get(0).equals(vList.get(size - 1))) {
 				// from THREE.csg.js. I guess the first vertex can appear more
 				// than once?
-				System.out.println("    First=last.");
-				vList = vList.subList(0, vList.size() - 2); // remove the extra
-															// vertex.
+				size--; // skip the extra vertex.
 			}
 
-			assert vList.size() >= 3;
-
-			for (int j = 2; j < vList.size(); j++) {
-				// A poly can have more than three vertices. Here we break it
-				// into triangles if necessary.
-				int[] idx = new int[] { 0, j - 1, j };
-
-				for (int i = 0; i < 3; i++) {
-					Vertex v = vList.get(idx[i]);
-					short putIdx = vCount; // count of unique vertices.
-					if (uniqueVerts.containsKey(v.toString())) {
-						// we already have this vertex.
-						putIdx = uniqueVerts.get(v.toString());
-						ddCount++;
-					} else {
-						// new vertex.
-						uniqueVerts.put(v.toString(), putIdx);
-						// put position
-						positions.add((float) v.getPos().x);
-						positions.add((float) v.getPos().y);
-						positions.add((float) v.getPos().z);
-
-						// put normal
-						normals.add((float) v.getNormal().x);
-						normals.add((float) v.getNormal().y);
-						normals.add((float) v.getNormal().z);
-
-						// put texCoord
-						texCoords.add((float) v.getTex().x);
-						texCoords.add((float) v.getTex().y);
-
-						vCount++;
-						assert vCount == positions.size();
-					}
-					// System.out.printf("%d\t%f\t%f\t%f\t%f\t%f\t%f\n",putIdx,v.getPos().x,v.getPos().y,v.getPos().z,v.getNormal().x,v.getNormal().y,v.getNormal().z);
-					// put index
-					indices.add(putIdx);
-				}
+			assert size >= 3;
+
+			// A poly can have more than three vertices. Here we break it into
+			// a fan of triangles (0, j-1, j).
+			int first = welder.weld(vList.get(0));
+			int previous = welder.weld(vList.get(1));
+			for (int j = 2; j < size; j++) {
+				int current = welder.weld(vList.get(j));
+				indices[iCount++] = first;
+				indices[iCount++] = previous;
+				indices[iCount++] = current;
+				previous = current;
 			}
 		}
 
-		// System.out.printf("deduped %d vertices. Total %d vertices.\n",
-		// ddCount, uniqueVerts.size());
-		FloatBuffer fpb = createFloatBuffer(positions);
-		FloatBuffer fnb = createFloatBuffer(normals);
-		FloatBuffer ftb = createFloatBuffer(texCoords);
-		ShortBuffer sib = createShortBuffer(indices);
-
-		m.setBuffer(Type.Position, 3, fpb);
-		m.setBuffer(Type.Normal, 3, fnb);
-		m.setBuffer(Type.TexCoord, 2, ftb);
-		m.setBuffer(Type.Index, 3, sib);
+		m.setBuffer(Type.Position, 3, welder.positionBuffer());
+		m.setBuffer(Type.Normal, 3, welder.normalBuffer());
+		m.setBuffer(Type.TexCoord, 2, welder.texCoordBuffer());
+		if (welder.getVertexCount() <= MAX_SHORT_INDEXED_VERTICES) {
+			m.setBuffer(Type.Index, 3, createShortBuffer(indices, iCount));
+		} else {
+			m.setBuffer(Type.Index, 3, createIntBuffer(indices, iCount));
+		}
 
 		m.updateBound();
 		return m;
 	}
 
-	private static ShortBuffer createShortBuffer(List<Short> data) {
-		short[] sh = new short[data.size()];
-		for (int i = 0; i < data.size(); i++) {
-			sh[i] = data.get(i);
+	/**
+	 * Same as {@link #fromCSG(CSG)}, but split into several meshes of at most
+	 * `maxVertices` vertices each, attached to a new Node. Each mesh covers a
+	 * compact region of space, so they cull well. With
+	 * {@link #MAX_SHORT_INDEXED_VERTICES}, every mesh gets 16-bit indices.
+	 * 
+	 * @param csg
+	 * @param maxVertices
+	 * @return a Node, named after the CSG, with one Geometry per mesh. They
+	 *         have no material yet.
+	 */
+	public static Node fromCSG(CSG csg, int maxVertices) {
+		assert maxVertices >= 3 : "maxVertices must be at least 3.";
+		Node node = new Node(csg.name);
+		int i = 0;
+		for (List<Polygon> chunk : MeshChunker.chunk(csg.getPolygons(), maxVertices)) {
+			node.attachChild(new Geometry(csg.name + "-" + i++, fromCSG(CSG.fromPolygons(chunk))));
 		}
-		return BufferUtils.createShortBuffer(sh);
+		return node;
 	}
 
-	private static FloatBuffer createFloatBuffer(List<Float> data) {
-		float[] f = new float[data.size()];
-		for (int i = 0; i < data.size(); i++) {
-			f[i] = data.get(i);
+	private static ShortBuffer createShortBuffer(int[] data, int length) {
+		ShortBuffer buffer = BufferUtils.createShortBuffer(length);
+		for (int i = 0; i < length; i++) {
+			buffer.put((short) data[i]);
 		}
-		return BufferUtils.createFloatBuffer(f);
+		buffer.flip();
+		return buffer;
+	}
+
+	private static IntBuffer createIntBuffer(int[] data, int length) {
+		IntBuffer buffer = BufferUtils.createIntBuffer(length);
+		buffer.put(data, 0, length);
+		buffer.flip();
+		return buffer;
 	}
 }
@@ -0,0 +1,142 @@
+package com.skyline.csg.jme3;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.skyline.csg.*;
+
+/**
+ * Splits a set of polygons into spatially coherent chunks, each with at most a
+ * given number of polygon vertices. The polygons are split in half at the
+ * median of their centroids along the longest axis, over and over, until every
+ * part is small enough. Each chunk is therefore a compact region of space,
+ * which keeps the chunks' bounds tight for frustum culling.
+ *
+ * @author philippd
+ */
+final class MeshChunker {
+
+	private final List<Polygon> polygons;
+	// 3 per polygon.
+	private final double[] centroids;
+	private final int[] order;
+
+	private MeshChunker(List<Polygon> polygons) {
+		this.polygons = polygons;
+		this.centroids = new double[polygons.size() * 3];
+		this.order = new int[polygons.size()];
+		for (int i = 0; i < polygons.size(); i++) {
+			List<Vertex> vertices = polygons.get(i).getVertices();
+			for (Vertex v : vertices) {
+				centroids[i * 3] += v.pos.x;
+				centroids[i * 3 + 1] += v.pos.y;
+				centroids[i * 3 + 2] += v.pos.z;
+			}
+			for (int k = 0; k < 3; k++) {
+				centroids[i * 3 + k] /= vertices.size();
+			}
+			order[i] = i;
+		}
+	}
+
+	/**
+	 * @param polygons
+	 * @param maxVertices
+	 *            the most polygon vertices in a chunk. A polygon with more
+	 *            vertices than this gets a chunk of its own.
+	 * @return the chunks.
+	 */
+	static List<List<Polygon>> chunk(List<Polygon> polygons, int maxVertices) {
+		return new MeshChunker(polygons).chunk(maxVertices);
+	}
+
+	private List<List<Polygon>> chunk(int maxVertices) {
+		List<List<Polygon>> retval = new ArrayList<List<Polygon>>();
+		// ranges of `order`, as (from, to) pairs.
+		Deque<int[]> stack = new ArrayDeque<int[]>();
+		stack.push(new int[] { 0, order.length });
+		while (!stack.isEmpty()) {
+			int[] range = stack.pop();
+			int from = range[0], to = range[1];
+			if (to - from <= 1 || vertexCount(from, to) <= maxVertices) {
+				if (to > from) {
+					List<Polygon> chunk = new ArrayList<Polygon>(to - from);
+					for (int i = from; i < to; i++) {
+						chunk.add(polygons.get(order[i]));
+					}
+					retval.add(chunk);
+				}
+				continue;
+			}
+			int mid = (from + to) >>> 1;
+			select(from, to, mid, longestAxis(from, to));
+			stack.push(new int[] { mid, to });
+			stack.push(new int[] { from, mid });
+		}
+		return retval;
+	}
+
+	private int vertexCount(int from, int to) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			count += polygons.get(order[i]).getVertices().size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the axis (0, 1 or 2 for x, y or z) along which the centroids in
+	 *         the range are most spread out.
+	 */
+	private int longestAxis(int from, int to) {
+		Vector3d min = new Vector3d(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+		Vector3d max = new Vector3d(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+		for (int i = from; i < to; i++) {
+			int c = order[i] * 3;
+			min.set(Math.min(min.x, centroids[c]), Math.min(min.y, centroids[c + 1]), Math.min(min.z, centroids[c + 2]));
+			max.set(Math.max(max.x, centroids[c]), Math.max(max.y, centroids[c + 1]), Math.max(max.z, centroids[c + 2]));
+		}
+		max.sub(min);
+		return max.x >= max.y && max.x >= max.z ? 0 : max.y >= max.z ? 1 : 2;
+	}
+
+	/**
+	 * Quickselect: reorder `order[from, to)` so that the polygon at `nth` has
+	 * the nth smallest centroid along `axis`, with smaller ones before it and
+	 * larger ones after.
+	 */
+	private void select(int from, int to, int nth, int axis) {
+		int lo = from, hi = to - 1;
+		while (lo < hi) {
+			double pivot = key(order[(lo + hi) >>> 1], axis);
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (key(order[i], axis) < pivot) {
+					i++;
+				}
+				while (key(order[j], axis) > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (nth <= j) {
+				hi = j;
+			} else if (nth >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private double key(int polygon, int axis) {
+		return centroids[polygon * 3 + axis];
+	}
+}
@@ -0,0 +1,171 @@
+package com.skyline.csg.jme3;
+
+import java.nio.*;
+import java.util.*;
+
+import com.jme3.util.*;
+import com.skyline.csg.*;
+
+/**
+ * Merges vertices that are equal to within {@link #QUANTUM} in position,
+ * normal and texture coordinates, and collects the merged vertices into
+ * primitive arrays, ready to be copied into jME3 buffers.
+ *
+ * Each vertex is keyed by its 8 attributes, rounded to multiples of QUANTUM
+ * and stored as longs. The keys live in one flat array, and an open-addressing
+ * (linear probing) table maps their hash to the vertex index, so welding
+ * allocates nothing per vertex.
+ *
+ * @author philippd
+ */
+final class VertexWelder {
+
+	/**
+	 * Vertices closer than this in every attribute are merged. Same precision
+	 * as the 6 decimals of {@link Vertex#toString()}, which used to be the key.
+	 */
+	static final double QUANTUM = 1e-6;
+
+	private static final int KEY_SIZE = 8;
+	private static final int EMPTY = -1;
+
+	private float[] positions;
+	private float[] normals;
+	private float[] texCoords;
+	private long[] keys;
+	private int vertexCount;
+
+	// vertex indices, or EMPTY. Length is a power of 2, at least twice the
+	// vertex count.
+	private int[] table;
+
+	/**
+	 * @param expectedVertices
+	 *            initial capacity. The welder grows as needed.
+	 */
+	VertexWelder(int expectedVertices) {
+		int capacity = Math.max(16, expectedVertices);
+		positions = new float[capacity * 3];
+		normals = new float[capacity * 3];
+		texCoords = new float[capacity * 2];
+		keys = new long[capacity * KEY_SIZE];
+		table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+		Arrays.fill(table, EMPTY);
+	}
+
+	/**
+	 * @param v
+	 * @return the index of the merged vertex equal to `v`, which is added if
+	 *         there isn't one yet.
+	 */
+	int weld(Vertex v) {
+		long k0 = quantize(v.pos.x), k1 = quantize(v.pos.y), k2 = quantize(v.pos.z);
+		long k3 = quantize(v.normal.x), k4 = quantize(v.normal.y), k5 = quantize(v.normal.z);
+		long k6 = quantize(v.tex.x), k7 = quantize(v.tex.y);
+
+		int mask = table.length - 1;
+		int slot = hash(k0, k1, k2, k3, k4, k5, k6, k7) & mask;
+		while (table[slot] != EMPTY) {
+			int i = table[slot] * KEY_SIZE;
+			if (keys[i] == k0 && keys[i + 1] == k1 && keys[i + 2] == k2 && keys[i + 3] == k3
+					&& keys[i + 4] == k4 && keys[i + 5] == k5 && keys[i + 6] == k6 && keys[i + 7] == k7) {
+				return table[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int index = vertexCount++;
+		if (index * 3 == positions.length) {
+			grow();
+		}
+		table[slot] = index;
+		int k = index * KEY_SIZE;
+		keys[k] = k0;
+		keys[k + 1] = k1;
+		keys[k + 2] = k2;
+		keys[k + 3] = k3;
+		keys[k + 4] = k4;
+		keys[k + 5] = k5;
+		keys[k + 6] = k6;
+		keys[k + 7] = k7;
+		positions[index * 3] = (float) v.pos.x;
+		positions[index * 3 + 1] = (float) v.pos.y;
+		positions[index * 3 + 2] = (float) v.pos.z;
+		normals[index * 3] = (float) v.normal.x;
+		normals[index * 3 + 1] = (float) v.normal.y;
+		normals[index * 3 + 2] = (float) v.normal.z;
+		texCoords[index * 2] = v.tex.x;
+		texCoords[index * 2 + 1] = v.tex.y;
+		if (vertexCount * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return index;
+	}
+
+	int getVertexCount() {
+		return vertexCount;
+	}
+
+	FloatBuffer positionBuffer() {
+		return toBuffer(positions, vertexCount * 3);
+	}
+
+	FloatBuffer normalBuffer() {
+		return toBuffer(normals, vertexCount * 3);
+	}
+
+	FloatBuffer texCoordBuffer() {
+		return toBuffer(texCoords, vertexCount * 2);
+	}
+
+	private static FloatBuffer toBuffer(float[] data, int length) {
+		FloatBuffer buffer = BufferUtils.createFloatBuffer(length);
+		buffer.put(data, 0, length);
+		buffer.flip();
+		return buffer;
+	}
+
+	private static long quantize(double value) {
+		return Math.round(value / QUANTUM);
+	}
+
+	private static int hash(long k0, long k1, long k2, long k3, long k4, long k5, long k6, long k7) {
+		long h = k0;
+		h = h * 31 + k1;
+		h = h * 31 + k2;
+		h = h * 31 + k3;
+		h = h * 31 + k4;
+		h = h * 31 + k5;
+		h = h * 31 + k6;
+		h = h * 31 + k7;
+		// spread the bits (murmur3 finalizer), since we only use the low ones.
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	private void grow() {
+		int capacity = positions.length / 3 * 2;
+		positions = Arrays.copyOf(positions, capacity * 3);
+		normals = Arrays.copyOf(normals, capacity * 3);
+		texCoords = Arrays.copyOf(texCoords, capacity * 2);
+		keys = Arrays.copyOf(keys, capacity * KEY_SIZE);
+	}
+
+	private void rehash(int length) {
+		table = new int[length];
+		Arrays.fill(table, EMPTY);
+		int mask = length - 1;
+		for (int index = 0; index < vertexCount; index++) {
+			int k = index * KEY_SIZE;
+			int slot = hash(keys[k], keys[k + 1], keys[k + 2], keys[k + 3], keys[k + 4], keys[k + 5], keys[k + 6], keys[k + 7]) & mask;
+			while (table[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = index;
+		}
+	}
+}
@@ -0,0 +1,371 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.geom.*;
+
+public class CSGTest {
+
+	@Test
+	public void bounds() {
+		CSG box = new Box(2, 4, 6, new Vector3d(1, 1, 1));
+		BoundingBox bounds = box.getBounds();
+		assertEquals(new Vector3d(0, -1, -2), bounds.getMin());
+		assertEquals(new Vector3d(2, 3, 4), bounds.getMax());
+		assertSame(bounds, box.getBounds());
+
+		assertTrue(CSG.fromPolygons(new ArrayList<Polygon>()).getBounds().isEmpty());
+	}
+
+	@Test
+	public void disjointUnion() {
+		CSG a = new Box(2, 2, 2);
+		CSG b = new Box(2, 2, 2, new Vector3d(5, 0, 0));
+		CSG union = a.union(b);
+		assertEquals(12, union.getPolygons().size());
+		assertEquals(new Vector3d(-1, -1, -1), union.getBounds().getMin());
+		assertEquals(new Vector3d(6, 1, 1), union.getBounds().getMax());
+	}
+
+	@Test
+	public void disjointSubtract() {
+		CSG a = new Box(2, 2, 2);
+		CSG b = new Box(2, 2, 2, new Vector3d(5, 0, 0));
+		assertSame(a, a.subtract(b));
+	}
+
+	@Test
+	public void disjointIntersect() {
+		CSG a = new Box(2, 2, 2);
+		CSG b = new Box(2, 2, 2, new Vector3d(5, 0, 0));
+		assertEquals(0, a.intersect(b).getPolygons().size());
+	}
+
+	/**
+	 * Polygons away from the overlap skip the BSP pass, and come through
+	 * untouched.
+	 */
+	@Test
+	public void partialOverlap() {
+		CSG far = new Box(2, 2, 2, new Vector3d(10, 0, 0));
+		CSG a = new Box(2, 2, 2).union(far);
+		CSG b = new Box(2, 2, 2, new Vector3d(1, 0, 0));
+
+		CSG difference = a.subtract(b);
+		assertEquals(6, countBeyond(difference, 5));
+		assertEquals(new Vector3d(-1, -1, -1), difference.getBounds().getMin());
+
+		CSG union = a.union(b);
+		assertEquals(6, countBeyond(union, 5));
+		assertEquals(new Vector3d(-1, -1, -1), union.getBounds().getMin());
+		assertEquals(new Vector3d(11, 1, 1), union.getBounds().getMax());
+
+		CSG intersection = a.intersect(b);
+		assertEquals(0, countBeyond(intersection, 5));
+		assertEquals(new Vector3d(0, -1, -1), intersection.getBounds().getMin());
+		assertEquals(new Vector3d(1, 1, 1), intersection.getBounds().getMax());
+	}
+
+	@Test
+	public void unionAllDisjoint() {
+		List<CSG> boxes = new ArrayList<CSG>();
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				boxes.add(new Box(2, 2, 2, new Vector3d(i * 3, 0, j * 3)));
+			}
+		}
+		CSG union = CSG.unionAll(boxes);
+		assertEquals(600, union.getPolygons().size());
+		assertEquals(new Vector3d(-1, -1, -1), union.getBounds().getMin());
+		assertEquals(new Vector3d(28, 1, 28), union.getBounds().getMax());
+	}
+
+	@Test
+	public void unionAllOverlapping() {
+		List<CSG> boxes = new ArrayList<CSG>();
+		for (int i = 0; i < 16; i++) {
+			boxes.add(new Box(2, 2 + i % 3, 2, new Vector3d(i, 0, 0)));
+		}
+		CSG serial = CSG.unionAll(boxes);
+		assertEquals(new Vector3d(-1, -2, -1), serial.getBounds().getMin());
+		assertEquals(new Vector3d(16, 2, 1), serial.getBounds().getMax());
+
+		CSGOptions options = new CSGOptions();
+		options.setPool(new ForkJoinPool(4));
+		options.setParallelThreshold(8);
+		CSG parallel = CSG.unionAll(boxes, options);
+		assertEquals(serial.getPolygons().size(), parallel.getPolygons().size());
+		assertEquals(serial.getBounds().toString(), parallel.getBounds().toString());
+	}
+
+	@Test
+	public void unionAllEmpty() {
+		assertEquals(0, CSG.unionAll(new ArrayList<CSG>()).getPolygons().size());
+		CSG box = new Box(2, 2, 2);
+		assertSame(box, CSG.unionAll(Arrays.asList(box, CSG.fromPolygons(new ArrayList<Polygon>()))));
+	}
+
+	@Test
+	public void chainedTransforms() {
+		CSG box = new Box(2, 2, 2);
+		String before = box.toString();
+		CSG moved = box.translate(1, 0, 0).scale(new Vector3d(2, 1, 1)).rotate(0, 0, (float) (Math.PI / 2));
+		// x is scaled to [0, 4], then turned onto y.
+		assertEquals(new Vector3d(-1, 0, -1).toString(), round(moved.getBounds().getMin()).toString());
+		assertEquals(new Vector3d(1, 4, 1).toString(), round(moved.getBounds().getMax()).toString());
+		assertEquals(before, box.toString());
+		assertOutwards(moved);
+	}
+
+	/**
+	 * Caching a transformed solid sizes it without applying the transform.
+	 */
+	@Test
+	public void cachingLeavesTransformPending() {
+		CSG box = new Box(2, 2, 2);
+		CSG moved = box.translate(1, 0, 0);
+		SolidCache<String> cache = new SolidCache<String>(1 << 20);
+		cache.put("moved", moved);
+		assertSame(box.getPolygons(), moved.unbakedPolygons());
+		assertEquals(SolidCache.sizeOf(box), cache.getBytes());
+		moved.getPolygons();
+		assertNotSame(box.getPolygons(), moved.unbakedPolygons());
+		assertEquals(SolidCache.sizeOf(box), SolidCache.sizeOf(moved));
+	}
+
+	@Test
+	public void translateMovesPlanes() {
+		CSG moved = new Box(2, 2, 2).translate(5, 0, 0);
+		assertOutwards(moved);
+		assertEquals(4, moved.union(new Box(2, 2, 2, new Vector3d(5, 0, 0))).getBounds().getMin().x, 1e-9);
+	}
+
+	@Test
+	public void mirror() {
+		CSG mirrored = new Box(2, 2, 2, new Vector3d(1, 0, 0)).scale(new Vector3d(-1, 1, 1));
+		assertEquals(-2, mirrored.getBounds().getMin().x, 1e-9);
+		assertOutwards(mirrored);
+	}
+
+	@Test
+	public void inverseLeavesSource() {
+		CSG box = new Box(2, 2, 2);
+		String before = box.toString();
+		CSG inverse = box.inverse();
+		assertEquals(before, box.toString());
+		assertEquals(before, inverse.inverse().toString());
+	}
+
+	@Test
+	public void snapshot() {
+		CSG box = new Box(2, 2, 2);
+		CSG snapshot = box.snapshot();
+		assertTrue(snapshot.isImmutable());
+		assertFalse(box.isImmutable());
+		assertSame(snapshot, snapshot.snapshot());
+		assertEquals(box.toString(), snapshot.toString());
+		try {
+			snapshot.getPolygons().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected.
+		}
+		Polygon polygon = snapshot.getPolygons().get(0);
+		assertTrue(polygon.isFrozen());
+		try {
+			polygon.translate(new Vector3d(1, 0, 0));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected.
+		}
+		try {
+			polygon.getVertices().get(0).scale(new Vector3d(2, 2, 2));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected.
+		}
+		// clones can be changed, without changing the snapshot.
+		Polygon clone = polygon.clone();
+		clone.translate(new Vector3d(1, 0, 0));
+		clone.flip();
+		assertEquals(box.toString(), snapshot.toString());
+	}
+
+	/**
+	 * The results of booleans on a snapshot can be changed, down to their
+	 * vertices, without changing the snapshot.
+	 */
+	@Test
+	public void resultsOfSnapshotsAreIndependent() {
+		CSG a = new Box(1.0).snapshot();
+		String before = a.toString();
+		List<CSG> results = Arrays.asList(a.subtract(new Box(1.0, new Vector3d(1, 1, 1))), a.union(new Box(1.0, new Vector3d(1, 1, 1))),
+				a.intersect(new Box(1.0, new Vector3d(1, 1, 1))), a.union(new Box(1.0, new Vector3d(9, 0, 0))));
+		for (CSG result : results) {
+			assertFalse(result.isImmutable());
+			for (Polygon p : result.getPolygons()) {
+				assertFalse(p.isFrozen());
+				for (Vertex v : p.getVertices()) {
+					v.translate(100, 0, 0);
+				}
+				p.translate(new Vector3d(0, 100, 0));
+			}
+		}
+		assertEquals(before, a.toString());
+		// nothing to cut: the snapshot itself, which says so.
+		assertSame(a, a.subtract(new Box(1.0, new Vector3d(9, 0, 0))));
+	}
+
+	/**
+	 * Polygons are transformed copy on write, so polygons sharing their
+	 * vertices stay where they are.
+	 */
+	@Test
+	public void copyOnWriteTransforms() {
+		Vector3d normal = new Vector3d(0, 0, 1);
+		TexCoord2f tex = new TexCoord2f();
+		Vertex a = new Vertex(new Vector3d(0, 0, 0), normal, tex), b = new Vertex(new Vector3d(1, 0, 0), normal, tex);
+		Polygon first = new Polygon(a, b, new Vertex(new Vector3d(0, 1, 0), normal, tex));
+		Polygon second = new Polygon(b, a, new Vertex(new Vector3d(0, -1, 0), normal, tex));
+		String before = second.toString();
+		first.translate(new Vector3d(0, 0, 1));
+		first.rotate(new Quat4d(0, 0, 1, 1));
+		first.scale(new Vector3d(1, 2, 3));
+		assertEquals(before, second.toString());
+		assertEquals(new Vector3d(0, 0, 0), a.pos);
+		assertEquals(3, first.getVertices().get(0).pos.z, 1e-9);
+
+		Node node = new Node(new ArrayList<Polygon>(Arrays.asList(second.clone())));
+		node.translate(new Vector3d(5, 0, 0));
+		assertEquals(before, second.toString());
+	}
+
+	/**
+	 * Many threads run booleans on the same two solids. Every result is the
+	 * same as the serial one, and the operands are left as they were.
+	 */
+	@Test
+	public void concurrentOperations() throws Exception {
+		final CSG a = new Sphere(1, 1).snapshot();
+		final CSG b = new Cylinder(0.5, 3, 16).translate(0.3, 0, 0).snapshot();
+		String before = a.toString() + b.toString();
+		final String expected = a.union(b).toString() + a.subtract(b).toString() + a.intersect(b).toString();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+			for (int i = 0; i < 16; i++) {
+				futures.add(executor.submit(new Callable<String>() {
+					public String call() {
+						return a.union(b).toString() + a.subtract(b).toString() + a.intersect(b).toString();
+					}
+				}));
+			}
+			for (Future<String> f : futures) {
+				assertEquals(expected, f.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(before, a.toString() + b.toString());
+	}
+
+	@Test
+	public void mergeCoplanar() {
+		CSG union = new Box(2, 2, 2).union(new Box(2, 2, 2, new Vector3d(1, 0, 0)));
+		CSG merged = union.mergeCoplanar();
+		assertTrue(union.getPolygons().size() > 6);
+		// back to a plain box.
+		assertEquals(6, merged.getPolygons().size());
+		for (Polygon p : merged.getPolygons()) {
+			assertEquals(4, p.vertices.size());
+		}
+		assertOutwards(merged);
+		assertEquals(union.getMassProperties().getVolume(), merged.getMassProperties().getVolume(), 1e-9);
+		assertEquals(union.getBounds().getMin(), merged.getBounds().getMin());
+		assertEquals(union.getBounds().getMax(), merged.getBounds().getMax());
+	}
+
+	@Test
+	public void mergeCoplanarKeepsCurvesAndSeams() {
+		CSG sphere = new Sphere(1, 2);
+		assertEquals(sphere.getPolygons().size(), sphere.mergeCoplanar().getPolygons().size());
+
+		// a quad as two triangles, and a collinear vertex on one edge. The
+		// textures meet at a seam on the diagonal.
+		Vector3d normal = new Vector3d(0, 0, 1);
+		Vertex a = new Vertex(new Vector3d(0, 0, 0), normal, new TexCoord2f(0, 0));
+		Vertex b = new Vertex(new Vector3d(1, 0, 0), normal, new TexCoord2f(1, 0));
+		Vertex c = new Vertex(new Vector3d(1, 1, 0), normal, new TexCoord2f(1, 1));
+		Vertex d = new Vertex(new Vector3d(0, 1, 0), normal, new TexCoord2f(0, 1));
+		Vertex mid = new Vertex(new Vector3d(0.5, 0, 0), normal, new TexCoord2f(0.5f, 0));
+		List<Polygon> quad = Arrays.asList(new Polygon(b, c, a, mid), new Polygon(a, c, d));
+		List<Polygon> merged = CSG.fromPolygons(quad).mergeCoplanar().getPolygons();
+		assertEquals(1, merged.size());
+		assertEquals(Arrays.asList(a, b, c, d), merged.get(0).vertices);
+
+		Vertex seam = new Vertex(c.pos, normal, new TexCoord2f(0, 0));
+		quad = Arrays.asList(new Polygon(a, b, c), new Polygon(a, seam, d));
+		assertEquals(2, CSG.fromPolygons(quad).mergeCoplanar().getPolygons().size());
+	}
+
+	@Test
+	public void mergeCoplanarOption() {
+		CSGOptions options = new CSGOptions();
+		options.setMergeCoplanar(true);
+		CSG plain = new Box(4, 2, 2), merged = plain;
+		for (int i = 0; i < 4; i++) {
+			CSG hole = new Box(0.5, 0.5, 4, new Vector3d(-1.5 + i, 0, 0));
+			plain = plain.subtract(hole);
+			merged = merged.subtract(hole, options);
+		}
+		assertTrue(merged.getPolygons().size() < plain.getPolygons().size());
+		assertEquals(plain.getMassProperties().getVolume(), merged.getMassProperties().getVolume(), 1e-9);
+		assertEquals(4 * 2 * 2 - 4 * 0.5 * 0.5 * 2, merged.getMassProperties().getVolume(), 1e-9);
+	}
+
+	/**
+	 * Every plane, and the winding of every polygon, faces away from the
+	 * center of the (convex) solid.
+	 */
+	private static void assertOutwards(CSG csg) {
+		BoundingBox bounds = csg.getBounds();
+		Point3d center = new Point3d(bounds.center(0), bounds.center(1), bounds.center(2));
+		for (Polygon p : csg.getPolygons()) {
+			assertTrue(p.plane.normal.dot(new Vector3d(center)) - p.plane.w < 0);
+			Vector3d a = new Vector3d(), b = new Vector3d(), cross = new Vector3d();
+			a.sub(p.vertices.get(1).pos, p.vertices.get(0).pos);
+			b.sub(p.vertices.get(2).pos, p.vertices.get(0).pos);
+			cross.cross(a, b);
+			assertTrue(cross.dot(p.plane.normal) > 0);
+		}
+	}
+
+	private static Vector3d round(Vector3d v) {
+		return new Vector3d(Math.round(v.x), Math.round(v.y), Math.round(v.z));
+	}
+
+	/**
+	 * @return the number of polygons entirely beyond `x`.
+	 */
+	private static int countBeyond(CSG csg, double x) {
+		int count = 0;
+		for (Polygon p : csg.getPolygons()) {
+			boolean beyond = true;
+			for (Vertex v : p.vertices) {
+				beyond &= v.pos.x > x;
+			}
+			if (beyond) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,185 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.geom.*;
+
+public class CompiledCSGTest {
+
+	private static final double DELTA = 1e-6;
+
+	@Test
+	public void sameAsCSG() {
+		CSG box = new Box(2, 2, 2);
+		CSG sphere = new Sphere(1.2, 2).translate(0.5, 0, 0);
+		CompiledCSG compiled = sphere.compile();
+		assertEquals(box.union(sphere).getMassProperties().getVolume(), box.union(compiled).getMassProperties().getVolume(), DELTA);
+		assertEquals(box.subtract(sphere).getMassProperties().getVolume(), box.subtract(compiled).getMassProperties().getVolume(), DELTA);
+		assertEquals(box.intersect(sphere).getMassProperties().getVolume(), box.intersect(compiled).getMassProperties().getVolume(), DELTA);
+		assertEquals(sphere.subtract(box).getMassProperties().getVolume(), compiled.subtract(box.compile()).getMassProperties().getVolume(), DELTA);
+	}
+
+	@Test
+	public void placedCopies() {
+		CompiledCSG window = new Box(1, 1, 1).compile();
+		CSG wall = new Box(10, 2, 0.5);
+		CSG expected = wall, actual = wall;
+		for (int x = -3; x <= 3; x += 2) {
+			expected = expected.subtract(new Box(1, 1, 1).translate(x, 0, 0));
+			actual = actual.subtract(window.translate(x, 0, 0));
+		}
+		assertEquals(expected.getMassProperties().getVolume(), actual.getMassProperties().getVolume(), DELTA);
+		assertEquals(10 - 4 * 0.5, actual.getMassProperties().getVolume(), DELTA);
+
+		Quat4d quarter = new Quat4d(0, 0, Math.sin(Math.PI / 4), Math.cos(Math.PI / 4));
+		CompiledCSG rotated = new Box(4, 1, 1).compile().rotate(quarter);
+		assertEquals(new Vector3d(-0.5, -2, -0.5).toString(), round(rotated.getBounds().getMin()).toString());
+		assertEquals(wall.subtract(new Box(4, 1, 1).rotate(quarter)).getMassProperties().getVolume(), wall.subtract(rotated).getMassProperties().getVolume(), DELTA);
+	}
+
+	@Test
+	public void concurrentUse() throws Exception {
+		final CompiledCSG cutter = new Cylinder(0.5, 3, 16).compile();
+		String before = cutter.getPolygons().toString();
+		final double expected = new Box(2, 2, 2).subtract(new Cylinder(0.5, 3, 16)).getMassProperties().getVolume();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Double>> futures = new ArrayList<Future<Double>>();
+			for (int i = 0; i < 32; i++) {
+				futures.add(executor.submit(new Callable<Double>() {
+					public Double call() {
+						return new Box(2, 2, 2).subtract(cutter).getMassProperties().getVolume();
+					}
+				}));
+			}
+			for (Future<Double> f : futures) {
+				assertEquals(expected, f.get(), DELTA);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(before, cutter.getPolygons().toString());
+	}
+
+	@Test
+	public void disjoint() {
+		CSG box = new Box(2, 2, 2);
+		CompiledCSG far = new Box(2, 2, 2).compile().translate(5, 0, 0);
+		assertSame(box, box.subtract(far));
+		assertEquals(12, box.union(far).getPolygons().size());
+		assertEquals(0, box.intersect(far).getPolygons().size());
+	}
+
+	/**
+	 * A box with a spherical hole, against random points clear of its surface.
+	 */
+	@Test
+	public void contains() {
+		CompiledCSG solid = new Box(2, 2, 2).subtract(new Sphere(0.8, 3)).compile();
+		Random random = new Random(7);
+		int checked = 0;
+		for (int i = 0; i < 10000; i++) {
+			Vector3d p = new Vector3d(random.nextDouble() * 3 - 1.5, random.nextDouble() * 3 - 1.5, random.nextDouble() * 3 - 1.5);
+			double max = Math.max(Math.abs(p.x), Math.max(Math.abs(p.y), Math.abs(p.z)));
+			if (Math.abs(p.length() - 0.8) < 0.02 || Math.abs(max - 1) < 0.01) {
+				continue;
+			}
+			assertEquals(p.toString(), max < 1 && p.length() > 0.8, solid.contains(p));
+			checked++;
+		}
+		assertTrue(checked > 9000);
+		// on the surface.
+		assertTrue(solid.contains(1, 0.5, 0.5));
+		assertTrue(solid.contains(-1, 1, 1));
+		assertFalse(new Box(1, 1, 1).compile().contains(2, 0.5, 0.5));
+		assertFalse(CSG.fromPolygons(new ArrayList<Polygon>()).compile().contains(0, 0, 0));
+	}
+
+	@Test
+	public void raycast() {
+		CompiledCSG solid = new Box(2, 2, 2).subtract(new Sphere(0.8, 3)).compile();
+		Vector3d normal = new Vector3d();
+		assertEquals(4, solid.raycast(new Vector3d(-5, 0.1, 0.2), new Vector3d(1, 0, 0), normal), DELTA);
+		assertEquals(new Vector3d(-1, 0, 0), normal);
+		// t is in units of the direction.
+		assertEquals(2, solid.raycast(new Vector3d(-5, 0.1, 0.2), new Vector3d(2, 0, 0)), DELTA);
+		// from the hole, out onto the sphere.
+		double t = solid.raycast(new Vector3d(0, 0, 0), new Vector3d(0, 0, 1), normal);
+		assertTrue(t > 0.75 && t <= 0.8);
+		assertTrue(normal.z < -0.9);
+		assertEquals(Double.POSITIVE_INFINITY, solid.raycast(new Vector3d(-5, 3, 0), new Vector3d(1, 0, 0)), 0);
+		assertEquals(Double.POSITIVE_INFINITY, solid.raycast(new Vector3d(-5, 0, 0), new Vector3d(-1, 0, 0)), 0);
+		// grazing the top face.
+		assertEquals(Double.POSITIVE_INFINITY, solid.raycast(new Vector3d(-5, 1, 0), new Vector3d(1, 0, 0)), 0);
+		// already inside.
+		assertEquals(0, solid.raycast(new Vector3d(0.9, 0.9, 0.9), new Vector3d(1, 0, 0), normal), 0);
+		assertEquals(new Vector3d(), normal);
+	}
+
+	@Test
+	public void placedQueries() {
+		CompiledCSG box = new Box(1, 1, 1).compile();
+		Quat4d quarter = new Quat4d();
+		quarter.set(new AxisAngle4d(0, 0, 1, Math.PI / 4));
+		CompiledCSG placed = box.rotate(quarter).translate(5, 0, 0);
+		assertTrue(placed.contains(5, 0.65, 0));
+		assertFalse(placed.contains(5.45, 0.45, 0));
+		assertFalse(placed.contains(0, 0, 0));
+		Vector3d normal = new Vector3d();
+		assertEquals(5 - Math.sqrt(0.5), placed.raycast(new Vector3d(0, 0, 0.1), new Vector3d(1, 0, 0), normal), DELTA);
+		assertEquals(-Math.sqrt(0.5), normal.x, DELTA);
+		assertEquals(Math.abs(normal.y), Math.sqrt(0.5), DELTA);
+	}
+
+	/**
+	 * The batch versions, serial and on a pool, give the same answers as one
+	 * query at a time.
+	 */
+	@Test
+	public void batchQueries() {
+		CSG shape = new Box(2, 2, 2).subtract(new Sphere(0.8, 2));
+		CSGOptions options = new CSGOptions();
+		options.setPool(ForkJoinPool.commonPool());
+		options.setParallelThreshold(64);
+		Random random = new Random(11);
+		int n = 2000;
+		double[] points = new double[3 * n], directions = new double[3 * n];
+		for (int i = 0; i < 3 * n; i++) {
+			points[i] = random.nextDouble() * 4 - 2;
+			directions[i] = random.nextGaussian();
+		}
+		for (CompiledCSG solid : new CompiledCSG[] { shape.compile(), shape.compile(options).translate(0.1, 0, 0) }) {
+			boolean[] inside = new boolean[n];
+			double[] t = new double[n], normals = new double[3 * n];
+			solid.contains(points, inside);
+			solid.raycast(points, directions, t, normals);
+			Vector3d normal = new Vector3d();
+			for (int i = 0; i < n; i++) {
+				Vector3d p = new Vector3d(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+				Vector3d d = new Vector3d(directions[3 * i], directions[3 * i + 1], directions[3 * i + 2]);
+				assertEquals(solid.contains(p), inside[i]);
+				assertEquals(solid.raycast(p, d, normal), t[i], 0);
+				if (t[i] == 0) {
+					assertTrue(inside[i]);
+				} else if (t[i] != Double.POSITIVE_INFINITY) {
+					assertEquals(normal, new Vector3d(normals[3 * i], normals[3 * i + 1], normals[3 * i + 2]));
+					// just past the hit is inside.
+					Vector3d hit = new Vector3d(d);
+					hit.scaleAdd(t[i] + 1e-3 / d.length(), p);
+					assertTrue(solid.contains(hit));
+				}
+			}
+		}
+	}
+
+	private static Vector3d round(Vector3d v) {
+		return new Vector3d(Math.round(v.x * 2) / 2.0, Math.round(v.y * 2) / 2.0, Math.round(v.z * 2) / 2.0);
+	}
+}
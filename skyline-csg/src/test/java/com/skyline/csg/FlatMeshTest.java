@@ -0,0 +1,56 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.geom.*;
+
+public class FlatMeshTest {
+
+	private static final double DELTA = 1e-6;
+
+	@Test
+	public void roundTrip() {
+		CSG box = new Box(2, 2, 2);
+		FlatMesh mesh = FlatMesh.fromCSG(box);
+		assertEquals(6, mesh.getPolygonCount());
+		assertEquals(24, mesh.getVertexCount());
+		assertEquals(box.toString(), mesh.toCSG().toString());
+	}
+
+	@Test
+	public void boxes() {
+		FlatMesh a = FlatMesh.fromCSG(new Box(2, 2, 2));
+		FlatMesh b = FlatMesh.fromCSG(new Box(2, 2, 2, new Vector3d(1, 0, 0)));
+		assertEquals(12, a.union(b).toCSG().getMassProperties().getVolume(), DELTA);
+		assertEquals(4, a.subtract(b).toCSG().getMassProperties().getVolume(), DELTA);
+		assertEquals(4, a.intersect(b).toCSG().getMassProperties().getVolume(), DELTA);
+		// operands are untouched.
+		assertEquals(8, a.toCSG().getMassProperties().getVolume(), DELTA);
+		assertEquals(8, b.toCSG().getMassProperties().getVolume(), DELTA);
+	}
+
+	@Test
+	public void disjoint() {
+		FlatMesh a = FlatMesh.fromCSG(new Box(2, 2, 2));
+		FlatMesh b = FlatMesh.fromCSG(new Box(2, 2, 2, new Vector3d(5, 0, 0)));
+		assertEquals(12, a.union(b).getPolygonCount());
+		assertSame(a, a.subtract(b));
+		assertEquals(0, a.intersect(b).getPolygonCount());
+	}
+
+	/**
+	 * The flat operations enclose the same volume as the object ones.
+	 */
+	@Test
+	public void sameAsCSG() {
+		FlatMesh a = FlatMesh.fromCSG(new Sphere(1, 2));
+		FlatMesh b = FlatMesh.fromCSG(new Cylinder(0.5, 3, 24));
+		assertEquals(new Sphere(1, 2).union(new Cylinder(0.5, 3, 24)).getMassProperties().getVolume(), a.union(b).toCSG().getMassProperties().getVolume(), DELTA);
+		assertEquals(new Sphere(1, 2).subtract(new Cylinder(0.5, 3, 24)).getMassProperties().getVolume(), a.subtract(b).toCSG().getMassProperties().getVolume(), DELTA);
+		assertEquals(new Sphere(1, 2).intersect(new Cylinder(0.5, 3, 24)).getMassProperties().getVolume(), a.intersect(b).toCSG().getMassProperties().getVolume(), DELTA);
+	}
+}
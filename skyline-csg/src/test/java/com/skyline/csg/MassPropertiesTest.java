@@ -0,0 +1,93 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.geom.*;
+
+public class MassPropertiesTest {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * A 2 x 4 x 6 box has an inertia of m / 12 * (h^2 + d^2) about x, and so
+	 * on, wherever it is.
+	 */
+	@Test
+	public void box() {
+		for (double offset : new double[] { 0, 10, 1e7 }) {
+			MassProperties mass = new Box(2, 4, 6).translate(offset, 2 * offset, 3 * offset).getMassProperties();
+			assertEquals(48, mass.getVolume(), DELTA);
+			assertEquals(88, mass.getArea(), DELTA);
+			Vector3d centroid = mass.getCentroid();
+			assertEquals(offset, centroid.x, DELTA * Math.max(1, offset));
+			assertEquals(2 * offset, centroid.y, DELTA * Math.max(1, offset));
+			assertEquals(3 * offset, centroid.z, DELTA * Math.max(1, offset));
+			Matrix3d inertia = mass.getInertia();
+			assertEquals(208, inertia.m00, 1e-6);
+			assertEquals(160, inertia.m11, 1e-6);
+			assertEquals(80, inertia.m22, 1e-6);
+			assertEquals(0, inertia.m01, 1e-6);
+			assertEquals(0, inertia.m12, 1e-6);
+			assertEquals(0, inertia.m02, 1e-6);
+			assertEquals(offset + 1, mass.getBounds().getMax().x, DELTA * Math.max(1, offset));
+		}
+	}
+
+	/**
+	 * A hollow box, and a solid turned inside out.
+	 */
+	@Test
+	public void booleanResults() {
+		CSG hollow = new Box(4, 4, 4).subtract(new Box(2, 2, 2));
+		MassProperties mass = hollow.getMassProperties();
+		assertEquals(64 - 8, mass.getVolume(), DELTA);
+		assertEquals(6 * 16 + 6 * 4, mass.getArea(), DELTA);
+		assertEquals(0, mass.getCentroid().length(), DELTA);
+		// a solid cube's inertia, less the hole's.
+		assertEquals(64 / 6.0 * 16 - 8 / 6.0 * 4, mass.getInertia().m00, DELTA);
+		assertEquals(-8, new Box(2, 2, 2).inverse().getMassProperties().getVolume(), DELTA);
+		assertEquals(0, CSG.fromPolygons(new ArrayList<Polygon>()).getMassProperties().getVolume(), 0);
+	}
+
+	@Test
+	public void sphere() {
+		MassProperties mass = new Sphere(2, 5).getMassProperties();
+		double r = 2;
+		assertEquals(4 / 3.0 * Math.PI * r * r * r, mass.getVolume(), 0.01 * mass.getVolume());
+		assertEquals(4 * Math.PI * r * r, mass.getArea(), 0.01 * mass.getArea());
+		// 2/5 m r^2.
+		assertEquals(0.4 * mass.getVolume() * r * r, mass.getInertia().m11, 0.01 * mass.getInertia().m11);
+	}
+
+	/**
+	 * Summed in parallel, or on a pool of one, the result is the same as
+	 * serially, up to rounding.
+	 */
+	@Test
+	public void parallel() {
+		CSG sphere = new Sphere(1, 6).translate(1, 2, 3);
+		assertTrue(sphere.getPolygons().size() > MassProperties.PARALLEL_THRESHOLD);
+		MassProperties serial = MassProperties.of(sphere.getPolygons());
+		MassProperties parallel = sphere.getMassProperties();
+		assertEquals(serial.getVolume(), parallel.getVolume(), DELTA);
+		assertEquals(serial.getArea(), parallel.getArea(), DELTA);
+		assertTrue(serial.getCentroid().epsilonEquals(parallel.getCentroid(), DELTA));
+		assertTrue(serial.getInertia().epsilonEquals(parallel.getInertia(), DELTA));
+	}
+
+	@Test
+	public void cachedUntilChanged() {
+		CSG box = new Box(2, 2, 2);
+		MassProperties mass = box.getMassProperties();
+		assertSame(mass, box.getMassProperties());
+		box.getPolygons().remove(0);
+		assertNotSame(mass, box.getMassProperties());
+		assertEquals(20, box.getMassProperties().getArea(), DELTA);
+	}
+}
@@ -0,0 +1,108 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.geom.*;
+
+public class NodeTest {
+
+	/**
+	 * A stack of parallel triangles builds a BSP tree that is one node deep
+	 * per triangle. That used to overflow the stack.
+	 */
+	@Test
+	public void deepTree() {
+		int count = 10000;
+		List<Polygon> polygons = new ArrayList<Polygon>();
+		for (int i = 0; i < count; i++) {
+			polygons.add(triangle(i));
+		}
+
+		Node node = new Node(polygons);
+		assertEquals(count, node.depth());
+		assertEquals(count, node.nodeCount());
+
+		Node copy = node.clone();
+		copy.invert();
+		assertEquals(count, copy.allPolygons().size());
+
+		// the stack is solid below its top triangle. Inverted, it's solid
+		// above, so everything but the (coplanar) top triangle survives.
+		List<Polygon> clipped = copy.clipPolygons(polygons);
+		assertEquals(count - 1, clipped.size());
+		node.clipTo(copy);
+		assertEquals(count - 1, node.allPolygons().size());
+	}
+
+	/**
+	 * Polygons come out of allPolygons in pre-order: node, front subtree, back
+	 * subtree.
+	 */
+	@Test
+	public void allPolygonsOrder() {
+		Polygon middle = triangle(0), above = triangle(1), below = triangle(-1);
+		Node node = new Node(Arrays.asList(middle, above, below));
+		List<Polygon> all = node.allPolygons();
+		assertSame(middle, all.get(0));
+		assertSame(above, all.get(1));
+		assertSame(below, all.get(2));
+	}
+
+	/**
+	 * Forked clipping must give exactly the same polygons, in the same order,
+	 * as the serial version.
+	 */
+	@Test
+	public void parallelClipping() {
+		CSGOptions serial = new CSGOptions();
+		CSGOptions parallel = new CSGOptions();
+		parallel.setPool(new ForkJoinPool(4));
+		parallel.setParallelThreshold(4);
+
+		CSG sphere = new Sphere(1, 2);
+		CSG cylinder = new Cylinder(0.5, 3, 24);
+
+		Node bsp = new Node(cylinder.clone().getPolygons(), serial);
+		Node parallelBsp = new Node(cylinder.clone().getPolygons(), parallel);
+		assertEquals(bsp.clipPolygons(sphere.getPolygons()).toString(), parallelBsp.clipPolygons(sphere.getPolygons()).toString());
+
+		Node node = new Node(sphere.clone().getPolygons(), serial);
+		Node parallelNode = new Node(sphere.clone().getPolygons(), parallel);
+		node.clipTo(bsp);
+		parallelNode.clipTo(parallelBsp);
+		assertEquals(node.allPolygons().toString(), parallelNode.allPolygons().toString());
+	}
+
+	/**
+	 * Subtrees built on the pool must come out the same as serially built
+	 * ones.
+	 */
+	@Test
+	public void parallelBuild() {
+		CSGOptions serial = new CSGOptions(SplitStrategy.SAMPLED);
+		CSGOptions parallel = new CSGOptions(SplitStrategy.SAMPLED);
+		parallel.setPool(new ForkJoinPool(4));
+		parallel.setParallelThreshold(8);
+
+		CSG solid = new Sphere(1, 2).union(new Cylinder(0.5, 3, 24));
+		Node node = new Node(solid.clone().getPolygons(), serial);
+		Node parallelNode = new Node(solid.clone().getPolygons(), parallel);
+		assertEquals(node.depth(), parallelNode.depth());
+		assertEquals(node.nodeCount(), parallelNode.nodeCount());
+		assertEquals(node.allPolygons().toString(), parallelNode.allPolygons().toString());
+	}
+
+	private static Polygon triangle(double z) {
+		return new Polygon(
+				new Vertex(new Vector3d(0, 0, z), new Vector3d(0, 0, 1), new TexCoord2f()),
+				new Vertex(new Vector3d(1, 0, z), new Vector3d(0, 0, 1), new TexCoord2f()),
+				new Vertex(new Vector3d(0, 1, z), new Vector3d(0, 0, 1), new TexCoord2f()));
+	}
+}
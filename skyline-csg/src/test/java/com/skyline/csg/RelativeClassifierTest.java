@@ -0,0 +1,79 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+public class RelativeClassifierTest {
+
+	/**
+	 * Far from the origin, points clearly off a plane are never taken for
+	 * coplanar, points on it never for off it, and the flipped plane
+	 * classifies every point the other way round.
+	 */
+	@Test
+	public void consistentFarFromOrigin() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			Vector3d n = new Vector3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+			n.normalize();
+			Vector3d p = new Vector3d(1e5 + random.nextDouble(), 1e5 + random.nextDouble(), random.nextDouble());
+			double terms = Math.abs(n.x * p.x) + Math.abs(n.y * p.y) + Math.abs(n.z * p.z);
+			double offset = (random.nextDouble() - 0.5) * 4 * RelativeClassifier.RELATIVE_EPSILON * terms;
+			double w = n.dot(p) - offset;
+			double band = RelativeClassifier.RELATIVE_EPSILON * (terms + Math.abs(w));
+			int type = RelativeClassifier.classify(n, w, p);
+			if (Math.abs(offset) > 1.01 * band) {
+				assertEquals(offset > 0 ? Plane.FRONT : Plane.BACK, type);
+			} else if (Math.abs(offset) < 0.99 * band) {
+				assertEquals(Plane.COPLANAR, type);
+			}
+			Vector3d flipped = new Vector3d(n);
+			flipped.negate();
+			int expected = type == Plane.FRONT ? Plane.BACK : type == Plane.BACK ? Plane.FRONT : Plane.COPLANAR;
+			assertEquals(expected, RelativeClassifier.classify(flipped, -w, p));
+		}
+	}
+
+	@Test
+	public void scalesWithCoordinates() {
+		Vector3d up = new Vector3d(0, 1, 0);
+		// 1e-7 off a plane through the origin, in a unit-sized model.
+		assertEquals(Plane.FRONT, RelativeClassifier.classify(up, 0, new Vector3d(0.5, 1e-7, 0.5)));
+		// the same distance, 1e5 out, is rounding noise.
+		assertEquals(Plane.COPLANAR, RelativeClassifier.classify(up, 1e5, new Vector3d(0.5, 1e5 + 1e-8, 0.5)));
+		assertEquals(Plane.BACK, RelativeClassifier.classify(up, 1e5, new Vector3d(0.5, 1e5 - 1e-3, 0.5)));
+	}
+
+	/**
+	 * A notch 4 micrometres deep in a 1 mm cube is within {@link CSG#EPSILON}
+	 * of the top face, and is lost without robust predicates.
+	 */
+	@Test
+	public void keepsSmallDetail() {
+		CSGOptions robust = new CSGOptions();
+		robust.setRobust(true);
+		CSG cube = new com.skyline.csg.geom.Box(1e-3, 1e-3, 1e-3);
+		CSG notch = new com.skyline.csg.geom.Box(0.5e-3, 8e-6, 2e-3, new Vector3d(0, 0.5e-3, 0));
+		double expected = 1e-9 - 0.5e-3 * 4e-6 * 1e-3;
+		assertEquals(1e-9, cube.subtract(notch).getMassProperties().getVolume(), 1e-15);
+		assertEquals(expected, cube.subtract(notch, robust).getMassProperties().getVolume(), 1e-15);
+		assertEquals(expected, FlatMesh.fromCSG(cube).subtract(FlatMesh.fromCSG(notch), robust).toCSG().getMassProperties().getVolume(), 1e-15);
+		// split planes are scored the same way they're split.
+		robust.setSplitStrategy(SplitStrategy.SAMPLED);
+		assertEquals(expected, cube.subtract(notch, robust).getMassProperties().getVolume(), 1e-15);
+		Plane top = new Plane(new Vector3d(0, 1, 0), 0.5e-3);
+		Polygon bottom = null;
+		for (Polygon p : notch.getPolygons()) {
+			if (p.plane.normal.y < 0) {
+				bottom = p;
+			}
+		}
+		assertEquals(Plane.COPLANAR, top.classify(bottom, new CSGOptions()));
+		assertEquals(Plane.BACK, top.classify(bottom, robust));
+	}
+}
@@ -0,0 +1,92 @@
+package com.skyline.csg;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.geom.*;
+
+public class ToleranceTest {
+
+	@Test
+	public void forBounds() {
+		assertEquals(1e-4, Tolerance.forBounds(new BoundingBox(-500, -1, -1, 500, 1, 1)).getPosition(), 1e-15);
+		assertEquals(1e-10, Tolerance.forExtent(1e-3).getPosition(), 1e-20);
+		// far from the origin, the rounding error of the coordinates wins.
+		assertEquals(1e-3, Tolerance.forBounds(new BoundingBox(1e9, 0, 0, 1e9 + 1, 1, 1)).getPosition(), 1e-9);
+		assertEquals(Tolerance.DEFAULT.getNormal(), Tolerance.forExtent(1e6).getNormal(), 0);
+		assertSame(Tolerance.DEFAULT, Tolerance.forBounds(BoundingBox.EMPTY));
+	}
+
+	/**
+	 * A sliver thinner than the default tolerance, on a millimetre-sized part,
+	 * only survives with a tolerance for its size.
+	 */
+	@Test
+	public void smallModel() {
+		CSG a = new Box(1e-3, 1e-3, 1e-3);
+		CSG b = a.translate(4e-6, 0, 0);
+		double sliver = 4e-6 * 1e-6;
+		assertNotEquals(sliver, a.subtract(b).getMassProperties().getVolume(), sliver / 100);
+
+		a.setTolerance(Tolerance.forBounds(a.getBounds()));
+		CSG result = a.subtract(b);
+		assertEquals(sliver, result.getMassProperties().getVolume(), sliver / 100);
+		assertEquals(a.getTolerance(), result.getTolerance());
+
+		CSGOptions options = new CSGOptions();
+		options.setTolerance(Tolerance.forExtent(1e-3));
+		assertEquals(sliver, new Box(1e-3, 1e-3, 1e-3).subtract(b, options).getMassProperties().getVolume(), sliver / 100);
+		FlatMesh flat = FlatMesh.fromCSG(new Box(1e-3, 1e-3, 1e-3)).subtract(FlatMesh.fromCSG(b), options);
+		assertEquals(sliver, flat.toCSG().getMassProperties().getVolume(), sliver / 100);
+		options.setSplitStrategy(SplitStrategy.SAMPLED);
+		assertEquals(sliver, new Box(1e-3, 1e-3, 1e-3).subtract(b, options).getMassProperties().getVolume(), sliver / 100);
+	}
+
+	/**
+	 * Split planes are scored with the same tolerance the polygons are split
+	 * with.
+	 */
+	@Test
+	public void classify() {
+		Plane plane = new Plane(new Vector3d(1, 0, 0), 0);
+		// the -x face of a box 4e-6 in front of the plane.
+		Polygon polygon = null;
+		for (Polygon p : new Box(1e-3, 1e-3, 1e-3).translate(5e-4 + 4e-6, 0, 0).getPolygons()) {
+			if (p.plane.normal.x < 0) {
+				polygon = p;
+			}
+		}
+		CSGOptions options = new CSGOptions();
+		assertEquals(Plane.COPLANAR, plane.classify(polygon, options));
+		options.setTolerance(Tolerance.forExtent(1e-3));
+		assertEquals(Plane.FRONT, plane.classify(polygon, options));
+	}
+
+	@Test
+	public void looserOfBoth() {
+		CSG a = new Box(1, 1, 1);
+		CSG b = new Box(1, 1, 1).translate(0.5, 0, 0);
+		a.setTolerance(Tolerance.forExtent(1));
+		b.setTolerance(Tolerance.forExtent(100));
+		assertEquals(b.getTolerance(), a.union(b).getTolerance());
+		assertEquals(b.getTolerance(), b.translate(1, 0, 0).getTolerance());
+
+		// the options win over both.
+		CSGOptions options = new CSGOptions();
+		options.setTolerance(Tolerance.forExtent(10));
+		assertEquals(options.getTolerance(), a.union(b, options).getTolerance());
+		assertNull(new Box(1, 1, 1).union(new Box(1, 1, 1).translate(0.5, 0, 0)).getTolerance());
+	}
+
+	@Test
+	public void vertexEquals() {
+		Vertex a = new Vertex(new Vector3d(1000, 0, 0), new Vector3d(0, 0, 1), new TexCoord2f(0.5f, 0.5f));
+		Vertex b = new Vertex(new Vector3d(1000.001, 0, 0), new Vector3d(0, 0.001, 1), new TexCoord2f(0.5f, 0.5f));
+		assertFalse(a.equals(b));
+		assertFalse(a.equals(b, new Tolerance(0.01, 1e-5, 1e-5)));
+		assertTrue(a.equals(b, new Tolerance(0.01, 0.01, 1e-5)));
+	}
+}
@@ -0,0 +1,179 @@
+package com.skyline.csg.expr;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.skyline.csg.*;
+
+public class CsgExecutorTest {
+
+	private CsgExecutor executor;
+
+	@After
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 10k lots, each a block with a notch cut `i % 100` steps along its front.
+	 */
+	@Test
+	public void batch() throws Exception {
+		ExprCache cache = new ExprCache();
+		executor = new CsgExecutor(16, cache);
+		List<Expr> jobs = new ArrayList<Expr>();
+		for (int i = 0; i < 10000; i++) {
+			jobs.add(Expr.box(2, 2, 2).subtract(Expr.box(0.5, 0.5, 4).translate(-1 + (i % 100) * 0.02, 1, 0)));
+		}
+		List<CompletableFuture<CSG>> results = executor.submitAll(jobs);
+		assertEquals(10000, results.size());
+		for (int i = 0; i < results.size(); i++) {
+			assertFalse(results.get(i).get(30, TimeUnit.SECONDS).getPolygons().isEmpty());
+		}
+		// each distinct lot was only computed once.
+		assertTrue(cache.getMisses() < 10000);
+		// the same lot, cached or not, has the same shape.
+		assertEquals(results.get(0).get().toString(), results.get(100).get().toString());
+		awaitPermits(16);
+	}
+
+	@Test
+	public void backpressure() throws Exception {
+		executor = new CsgExecutor(2, null);
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<CSG> blocked = new Callable<CSG>() {
+			public CSG call() throws Exception {
+				release.await();
+				return Expr.box(1, 1, 1).evaluate();
+			}
+		};
+		executor.submit(blocked);
+		executor.submit(blocked);
+		assertEquals(0, executor.availablePermits());
+
+		final CountDownLatch submitted = new CountDownLatch(1);
+		Thread producer = new Thread(new Runnable() {
+			public void run() {
+				executor.submit(Expr.box(1, 1, 1));
+				submitted.countDown();
+			}
+		});
+		producer.start();
+		assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(submitted.await(10, TimeUnit.SECONDS));
+		producer.join();
+	}
+
+	@Test
+	public void cancel() throws Exception {
+		executor = new CsgExecutor(4, null);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		CompletableFuture<CSG> running = executor.submit(new Callable<CSG>() {
+			public CSG call() {
+				started.countDown();
+				try {
+					Thread.sleep(60000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return null;
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertTrue(running.cancel(true));
+		assertTrue(running.isCancelled());
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		// the permit was given back.
+		awaitPermits(4);
+	}
+
+	@Test
+	public void timeout() throws Exception {
+		executor = new CsgExecutor(4, null);
+		CompletableFuture<CSG> slow = executor.submit(new Callable<CSG>() {
+			public CSG call() throws Exception {
+				Thread.sleep(60000);
+				return null;
+			}
+		}, 50, TimeUnit.MILLISECONDS);
+		try {
+			slow.get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		CompletableFuture<CSG> fast = executor.submit(Expr.box(1, 1, 1), 10, TimeUnit.SECONDS);
+		assertEquals(6, fast.get(10, TimeUnit.SECONDS).getPolygons().size());
+	}
+
+	@Test
+	public void failures() throws Exception {
+		executor = new CsgExecutor(4, null);
+		CompletableFuture<CSG> failed = executor.submit(new Callable<CSG>() {
+			public CSG call() {
+				throw new IllegalStateException("broken lot");
+			}
+		});
+		try {
+			failed.get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		awaitPermits(4);
+	}
+
+	/**
+	 * A job that hasn't started gives its permit back when it's cancelled, and
+	 * never runs.
+	 */
+	@Test
+	public void cancelQueued() throws Exception {
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		try {
+			executor = new CsgExecutor(single, 2, null);
+			final CountDownLatch release = new CountDownLatch(1);
+			executor.submit(new Callable<CSG>() {
+				public CSG call() throws Exception {
+					release.await();
+					return Expr.box(1, 1, 1).evaluate();
+				}
+			});
+			final CountDownLatch ran = new CountDownLatch(1);
+			CompletableFuture<CSG> queued = executor.submit(new Callable<CSG>() {
+				public CSG call() {
+					ran.countDown();
+					return null;
+				}
+			});
+			assertEquals(0, executor.availablePermits());
+			assertTrue(queued.cancel(true));
+			assertEquals(1, executor.availablePermits());
+			release.countDown();
+			awaitPermits(2);
+			assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+		} finally {
+			single.shutdownNow();
+		}
+	}
+
+	/**
+	 * Jobs give their permits back as their tasks exit, just after their
+	 * futures complete.
+	 */
+	private void awaitPermits(int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (executor.availablePermits() != expected && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(expected, executor.availablePermits());
+	}
+}
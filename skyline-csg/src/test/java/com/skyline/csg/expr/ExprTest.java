@@ -0,0 +1,83 @@
+package com.skyline.csg.expr;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.*;
+
+public class ExprTest {
+
+	@Test
+	public void structuralEquality() {
+		Expr a = Expr.box(2, 2, 2).subtract(Expr.cylinder(0.5, 3, 16).translate(1, 0, 0));
+		Expr b = Expr.box(2, 2, 2).subtract(Expr.cylinder(0.5, 3, 16).translate(1, 0, 0));
+		assertNotSame(a, b);
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+
+		assertFalse(a.equals(Expr.box(2, 2, 2).subtract(Expr.cylinder(0.5, 3, 17).translate(1, 0, 0))));
+		assertFalse(a.equals(Expr.box(2, 2, 2).union(Expr.cylinder(0.5, 3, 16).translate(1, 0, 0))));
+		// transforms are folded.
+		assertEquals(Expr.box(1, 1, 1).translate(3, 0, 0), Expr.box(1, 1, 1).translate(1, 0, 0).translate(2, 0, 0));
+	}
+
+	@Test
+	public void reusesUnchangedSubtrees() {
+		ExprCache cache = new ExprCache();
+		Expr body = Expr.box(2, 2, 2).subtract(Expr.cylinder(0.5, 3, 16));
+		CSG first = body.union(Expr.sphere(1, 1).translate(2, 0, 0)).evaluate(cache);
+		CSG drilled = cache.get(body);
+		assertNotNull(drilled);
+		long misses = cache.getMisses();
+
+		// move the sphere. The drilled box is reused as-is.
+		CSG second = Expr.box(2, 2, 2).subtract(Expr.cylinder(0.5, 3, 16)).union(Expr.sphere(1, 1).translate(3, 0, 0))
+				.evaluate(cache);
+		assertNotSame(first, second);
+		assertSame(drilled, cache.get(body));
+		// only the moved sphere and the new union were computed.
+		assertEquals(misses + 2, cache.getMisses());
+
+		// an unchanged scene is a single lookup.
+		long hits = cache.getHits();
+		assertSame(second, body.union(Expr.sphere(1, 1).translate(3, 0, 0)).evaluate(cache));
+		assertEquals(hits + 1, cache.getHits());
+	}
+
+	@Test
+	public void sameAsUncached() {
+		Expr scene = Expr.box(2, 2, 2).intersect(Expr.sphere(1.2, 2)).subtract(Expr.cylinder(0.5, 3, 16));
+		assertEquals(scene.evaluate().getBounds().toString(), scene.evaluate(new ExprCache()).getBounds().toString());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		Expr a = Expr.box(1, 1, 1), b = Expr.box(2, 2, 2), c = Expr.box(3, 3, 3);
+		long boxBytes = SolidCache.sizeOf(a.evaluate());
+		ExprCache cache = new ExprCache(boxBytes * 2);
+		a.evaluate(cache);
+		b.evaluate(cache);
+		a.evaluate(cache);
+		c.evaluate(cache);
+		assertEquals(2, cache.size());
+		assertEquals(boxBytes * 2, cache.getBytes());
+		assertNotNull(cache.get(a));
+		assertNull(cache.get(b));
+		assertNotNull(cache.get(c));
+
+		// too big to cache at all.
+		ExprCache tiny = new ExprCache(boxBytes - 1);
+		a.evaluate(tiny);
+		assertEquals(0, tiny.size());
+	}
+
+	@Test
+	public void transformsMoveTheSolid() {
+		CSG csg = Expr.box(2, 2, 2).scale(new Vector3d(2, 1, 1)).translate(1, 0, 0).evaluate();
+		assertEquals(new Vector3d(-1, -1, -1), csg.getBounds().getMin());
+		assertEquals(new Vector3d(3, 1, 1), csg.getBounds().getMax());
+	}
+}
@@ -0,0 +1,79 @@
+package com.skyline.csg.expr;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.*;
+
+public class IncrementalEvaluatorTest {
+
+	private static final double DELTA = 1e-6;
+
+	/**
+	 * A row of 4 walls, 3 apart, each with a hole drilled `holes[i]` off its
+	 * center. Walls are unioned from left to right.
+	 */
+	private static Expr walls(double... holes) {
+		Expr retval = null;
+		for (int i = 0; i < holes.length; i++) {
+			Expr hole = Expr.cylinder(0.4, 1, 16).rotate(new Quat4d(Math.sin(Math.PI / 4), 0, 0, Math.cos(Math.PI / 4)))
+					.translate(holes[i], 0, 0);
+			Expr wall = Expr.box(2, 2, 0.5).subtract(hole).translate(3 * i, 0, 0);
+			retval = retval == null ? wall : retval.union(wall);
+		}
+		return retval;
+	}
+
+	@Test
+	public void recomputesOnlyThePath() {
+		IncrementalEvaluator evaluator = new IncrementalEvaluator();
+		evaluator.evaluate(walls(0, 0, 0, 0));
+		int clippedFromScratch = evaluator.getClippedPolygons();
+
+		CSG edited = evaluator.evaluate(walls(0, 0, 0.3, 0));
+		// the hole, the wall it's in, the wall's transform, and the 2 unions
+		// above it.
+		assertEquals(5, evaluator.getComputedNodes());
+		assertTrue(evaluator.getClippedPolygons() < clippedFromScratch / 2);
+		assertEquals(walls(0, 0, 0.3, 0).evaluate().getMassProperties().getVolume(), edited.getMassProperties().getVolume(), DELTA);
+
+		BoundingBox changed = evaluator.getChangedRegion();
+		assertTrue(changed.getMin().x >= 6 - 0.5);
+		assertTrue(changed.getMax().x <= 6 + 0.8);
+	}
+
+	@Test
+	public void unchangedSceneIsReused() {
+		IncrementalEvaluator evaluator = new IncrementalEvaluator();
+		CSG first = evaluator.evaluate(walls(0, 0.2));
+		assertSame(first, evaluator.evaluate(walls(0, 0.2)));
+		assertEquals(0, evaluator.getComputedNodes());
+		assertNull(evaluator.getChangedRegion());
+	}
+
+	@Test
+	public void sameAsFullEvaluation() {
+		Expr a = Expr.box(2, 2, 2);
+		Expr b = Expr.sphere(1.2, 2).translate(0.5, 0, 0);
+		IncrementalEvaluator evaluator = new IncrementalEvaluator();
+		for (Expr scene : new Expr[] { a.union(b), a.subtract(b), a.intersect(b), b.subtract(a), a.subtract(b.translate(0.2, 0, 0)),
+				a.intersect(b.translate(0.2, 0, 0)), a.union(b.translate(0.2, 0, 0)) }) {
+			assertEquals(scene.toString(), scene.evaluate().getMassProperties().getVolume(), evaluator.evaluate(scene).getMassProperties().getVolume(), DELTA);
+		}
+	}
+
+	@Test
+	public void sharedPolygonsAreNotFlipped() {
+		IncrementalEvaluator evaluator = new IncrementalEvaluator();
+		Expr a = Expr.box(2, 2, 2);
+		Expr b = Expr.box(2, 2, 2).translate(1, 0, 0);
+		CSG union = evaluator.evaluate(a.union(b));
+		String before = union.toString();
+		evaluator.evaluate(a.intersect(b));
+		evaluator.evaluate(a.subtract(b));
+		assertEquals(before, evaluator.evaluate(a.union(b)).toString());
+	}
+}
@@ -0,0 +1,96 @@
+package com.skyline.csg.geom;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.*;
+
+public class IcoSphereTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void counts() {
+		for (int lod = 0; lod <= 4; lod++) {
+			List<Polygon> polygons = new IcoSphere(1, lod).getPolygons();
+			assertEquals(20 << 2 * lod, polygons.size());
+			// each vertex is made once, and shared.
+			Set<Vertex> vertices = Collections.newSetFromMap(new IdentityHashMap<Vertex, Boolean>());
+			for (Polygon p : polygons) {
+				vertices.addAll(p.getVertices());
+			}
+			assertEquals(lod == 0 ? 60 : (10 << 2 * lod) + 2, vertices.size());
+		}
+	}
+
+	/**
+	 * Moving one polygon, or a tree of some of them, leaves the polygons it
+	 * shares vertices with on the sphere.
+	 */
+	@Test
+	public void sharedVerticesStay() {
+		List<Polygon> polygons = new IcoSphere(1, 2).getPolygons();
+		Polygon moved = polygons.get(0);
+		moved.translate(new Vector3d(1, 0, 0));
+		moved.scale(new Vector3d(2, 1, 1));
+		moved.rotate(new Quat4d(0, 1, 0, 1));
+		Node tree = new Node(new ArrayList<Polygon>(polygons.subList(1, 10)));
+		tree.translate(new Vector3d(0, 1, 0));
+		for (Polygon p : polygons.subList(10, polygons.size())) {
+			for (Vertex v : p.getVertices()) {
+				assertEquals(1, v.pos.length(), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void onTheSphere() {
+		for (Polygon p : new IcoSphere(2.5, 3).getPolygons()) {
+			Vector3d center = new Vector3d();
+			for (Vertex v : p.getVertices()) {
+				assertEquals(2.5, v.pos.length(), DELTA);
+				assertEquals(1, v.normal.length(), DELTA);
+				assertEquals(2.5, v.normal.dot(v.pos), DELTA);
+				center.add(v.pos);
+			}
+			// wound outwards.
+			Vector3d u = new Vector3d(), w = new Vector3d(), n = new Vector3d();
+			u.sub(p.getVertices().get(1).pos, p.getVertices().get(0).pos);
+			w.sub(p.getVertices().get(2).pos, p.getVertices().get(0).pos);
+			n.cross(u, w);
+			assertTrue(n.dot(center) > 0);
+		}
+	}
+
+	@Test
+	public void lodZeroIsTheIcosahedron() {
+		List<Polygon> expected = new Icosahedron(1.5).getPolygons(), actual = new IcoSphere(1.5, 0).getPolygons();
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			for (int j = 0; j < 3; j++) {
+				Vertex e = expected.get(i).getVertices().get(j), a = actual.get(i).getVertices().get(j);
+				assertEquals(0, distance(e.pos, a.pos), DELTA);
+				assertEquals(0, distance(e.normal, a.normal), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void sphereHasItsRadius() {
+		Sphere sphere = new Sphere(0.5, 2);
+		assertEquals(320, sphere.getPolygons().size());
+		assertEquals(0.5, sphere.getPolygons().get(7).getVertices().get(1).pos.length(), DELTA);
+		assertEquals(3, new Sphere().getLod());
+	}
+
+	private static double distance(Vector3d a, Vector3d b) {
+		Vector3d d = new Vector3d(a);
+		d.sub(b);
+		return d.length();
+	}
+}
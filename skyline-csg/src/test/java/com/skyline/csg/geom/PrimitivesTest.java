@@ -0,0 +1,96 @@
+package com.skyline.csg.geom;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import org.junit.*;
+
+import com.skyline.csg.*;
+
+public class PrimitivesTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void sameAsConstructors() {
+		Primitives primitives = new Primitives();
+		assertSameShape(new Box(2, 3, 4), primitives.box(2, 3, 4));
+		assertSameShape(new Icosahedron(1.5), primitives.icosahedron(1.5));
+		assertSameShape(new Sphere(0.7, 2), primitives.sphere(0.7, 2));
+		assertSameShape(new Cylinder(0.5, 3, 16), primitives.cylinder(0.5, 3, 16));
+		assertSameShape(new Cone(2, 1, 12), primitives.cone(2, 1, 12));
+		// squashed and stretched, to catch normals scaled the wrong way.
+		assertSameShape(new Cylinder(2, 0.1, 5), primitives.cylinder(2, 0.1, 5));
+		assertSameShape(new Cone(0.3, 5, 7), primitives.cone(0.3, 5, 7));
+		assertSameShape(new Torus(8, 6, 0.5, 2), primitives.torus(8, 6, 0.5, 2));
+	}
+
+	@Test
+	public void cachedByTessellation() {
+		Primitives primitives = new Primitives();
+		primitives.sphere(1, 2);
+		primitives.sphere(3, 2);
+		primitives.sphere(3, 1);
+		primitives.cylinder(1, 2, 16);
+		primitives.cylinder(4, 5, 16);
+		assertEquals(3, primitives.size());
+		assertEquals(3, primitives.getMisses());
+		assertEquals(2, primitives.getHits());
+	}
+
+	@Test
+	public void copiesAreIndependent() {
+		Primitives primitives = new Primitives();
+		CSG a = primitives.box(1, 1, 1);
+		a.getPolygons().get(0).getVertices().get(0).pos.set(9, 9, 9);
+		a.getPolygons().clear();
+		assertSameShape(new Box(1, 1, 1), primitives.box(1, 1, 1));
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		// room for a sphere of lod 1 (80 triangles) and an icosahedron, but not
+		// for a box on top.
+		Primitives primitives = new Primitives(100 * (SolidCache.POLYGON_BYTES + 3 * SolidCache.VERTEX_BYTES) + 1000);
+		primitives.sphere(1, 1);
+		primitives.box(1, 1, 1);
+		primitives.sphere(1, 1);
+		primitives.icosahedron(1);
+		assertEquals(2, primitives.size());
+		assertTrue(primitives.getBytes() <= primitives.getMaxBytes());
+		long misses = primitives.getMisses();
+		// the box was dropped, the sphere wasn't.
+		primitives.sphere(1, 1);
+		primitives.box(1, 1, 1);
+		assertEquals(misses + 1, primitives.getMisses());
+
+		// too big to cache at all, but still made.
+		assertSameShape(new Sphere(1, 3), new Primitives(0).sphere(1, 3));
+	}
+
+	/**
+	 * Same polygons, with the same vertices and normals, up to rounding. The
+	 * normals are compared as they are, not normalized.
+	 */
+	private static void assertSameShape(CSG expected, CSG actual) {
+		List<Polygon> e = expected.getPolygons(), a = actual.getPolygons();
+		assertEquals(e.size(), a.size());
+		for (int i = 0; i < e.size(); i++) {
+			List<Vertex> ev = e.get(i).getVertices(), av = a.get(i).getVertices();
+			assertEquals(ev.size(), av.size());
+			for (int j = 0; j < ev.size(); j++) {
+				assertClose(ev.get(j).pos, av.get(j).pos);
+				assertClose(ev.get(j).normal, av.get(j).normal);
+			}
+		}
+	}
+
+	private static void assertClose(Vector3d expected, Vector3d actual) {
+		assertEquals(expected.x, actual.x, DELTA);
+		assertEquals(expected.y, actual.y, DELTA);
+		assertEquals(expected.z, actual.z, DELTA);
+	}
+}
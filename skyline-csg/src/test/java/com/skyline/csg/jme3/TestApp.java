@@ -10,6 +10,7 @@ import com.jme3.post.ssao.*;
 import com.jme3.renderer.queue.RenderQueue.ShadowMode;
 import com.jme3.scene.*;
 import com.jme3.scene.shape.*;
+import com.jme3.scene.shape.Box;
 import com.jme3.scene.shape.Cylinder;
 import com.jme3.scene.shape.Sphere;
 import com.jme3.shadow.*;
@@ -132,7 +133,7 @@ public class TestApp extends SimpleApplication {
 	}
 
 	private Geometry setupCSG() {
-		CSG cube = new Box(1);
+		CSG cube = new com.skyline.csg.geom.Box(1);
 		CSG sphere = new com.skyline.csg.geom.Sphere(1.4,4);
 		CSG cyl = new com.skyline.csg.geom.Cylinder(.95,3,50);
 		CSG cyl2 = new com.skyline.csg.geom.Cylinder(.95,3,50);
@@ -1,14 +1,19 @@
 package com.skyline.csg.jme3;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 import java.nio.*;
+import java.util.*;
 
 import javax.vecmath.*;
 
 import org.junit.*;
 
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.*;
+import com.jme3.math.Vector3f;
 import com.jme3.scene.*;
+import com.jme3.scene.Node;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.mesh.*;
 import com.jme3.scene.shape.*;
@@ -68,6 +73,132 @@ public class jmeAdapterTest {
 
 	}
 
+	/**
+	 * The geometry's transform is applied like jME3 does: scale, rotate, then
+	 * translate.
+	 */
+	@Test
+	public void transform() {
+		Geometry cube = new Geometry("box", new Box(.5f, .5f, .5f));
+		cube.setLocalScale(2, 1, 1);
+		cube.setLocalRotation(new Quaternion().fromAngleAxis(FastMath.HALF_PI, Vector3f.UNIT_Y));
+		cube.setLocalTranslation(5, 0, 0);
+
+		com.skyline.csg.BoundingBox bounds = JmeAdapter.toCSG(cube).getBounds();
+		// x and z swap places.
+		assertEquals(new Vector3d(4.5, -0.5, -1), round(bounds.getMin()));
+		assertEquals(new Vector3d(5.5, 0.5, 1), round(bounds.getMax()));
+
+		for (Polygon p : JmeAdapter.toCSG(cube).getPolygons()) {
+			for (Vertex v : p.getVertices()) {
+				assertEquals(1, v.normal.length(), 1e-6);
+			}
+		}
+	}
+
+	/**
+	 * A mirroring scale flips the triangles' winding back, so they still wind
+	 * counter-clockwise around their normals.
+	 */
+	@Test
+	public void mirrored() {
+		Geometry cube = new Geometry("box", new Box(.5f, .5f, .5f));
+		cube.setLocalScale(-1, 1, 1);
+		for (Polygon p : JmeAdapter.toCSG(cube).getPolygons()) {
+			Vector3d a = p.getVertices().get(0).pos, b = p.getVertices().get(1).pos, c = p.getVertices().get(2).pos;
+			Vector3d ab = new Vector3d(), ac = new Vector3d(), winding = new Vector3d();
+			ab.sub(b, a);
+			ac.sub(c, a);
+			winding.cross(ab, ac);
+			assertTrue(winding.dot(p.getVertices().get(0).normal) > 0);
+		}
+	}
+
+	/**
+	 * Triangles sharing a mesh index share its vertex, and moving one of them
+	 * leaves the other where it is.
+	 */
+	@Test
+	public void sharedVertices() {
+		Box box = new Box(.5f, .5f, .5f);
+		List<Polygon> polygons = JmeAdapter.toCSG(new Geometry("box", box)).getPolygons();
+		Set<Vertex> vertices = Collections.newSetFromMap(new IdentityHashMap<Vertex, Boolean>());
+		for (Polygon p : polygons) {
+			vertices.addAll(p.getVertices());
+		}
+		assertEquals(box.getVertexCount(), vertices.size());
+
+		// the two triangles of the first face share two corners.
+		Polygon first = polygons.get(0), second = polygons.get(1);
+		Vertex corner = null;
+		for (Vertex v : first.getVertices()) {
+			if (second.getVertices().contains(v)) {
+				corner = v;
+			}
+		}
+		assertNotNull(corner);
+		Vector3d before = new Vector3d(corner.pos);
+		first.translate(new Vector3d(1, 0, 0));
+		assertEquals(before, corner.pos);
+		assertFalse(first.getVertices().contains(corner));
+	}
+
+	private static Vector3d round(Vector3d v) {
+		return new Vector3d(Math.round(v.x * 1e5) / 1e5, Math.round(v.y * 1e5) / 1e5, Math.round(v.z * 1e5) / 1e5);
+	}
+
+	/**
+	 * Past 65536 vertices, the index buffer switches to ints.
+	 */
+	@Test
+	public void intIndices() {
+		CSG csg = triangles(30000); // 90000 distinct vertices.
+		Mesh m = JmeAdapter.fromCSG(csg);
+		assertEquals(90000, m.getVertexCount());
+		assertEquals(VertexBuffer.Format.UnsignedInt, m.getBuffer(Type.Index).getFormat());
+
+		IndexBuffer idx = m.getIndicesAsList();
+		FloatBuffer pos = (FloatBuffer) m.getBuffer(Type.Position).getData();
+		// the last triangle's last vertex.
+		assertEquals(csg.getPolygons().get(29999).getVertices().get(2).pos.x, pos.get(idx.get(89999) * 3), 1e-3);
+
+		assertEquals(VertexBuffer.Format.UnsignedShort, JmeAdapter.fromCSG(triangles(100)).getBuffer(Type.Index).getFormat());
+	}
+
+	@Test
+	public void chunks() {
+		CSG csg = triangles(30000);
+		Node node = JmeAdapter.fromCSG(csg, JmeAdapter.MAX_SHORT_INDEXED_VERTICES);
+		assertTrue(node.getQuantity() > 1);
+		int triangles = 0;
+		for (Spatial child : node.getChildren()) {
+			Mesh m = ((Geometry) child).getMesh();
+			assertTrue(m.getVertexCount() <= JmeAdapter.MAX_SHORT_INDEXED_VERTICES);
+			assertEquals(VertexBuffer.Format.UnsignedShort, m.getBuffer(Type.Index).getFormat());
+			triangles += m.getTriangleCount();
+		}
+		assertEquals(30000, triangles);
+
+		// spatially separate.
+		BoundingBox a = (BoundingBox) node.getChild(0).getWorldBound();
+		BoundingBox b = (BoundingBox) node.getChild(1).getWorldBound();
+		assertFalse(a.intersects(b));
+	}
+
+	/**
+	 * A row of separate triangles along x.
+	 */
+	private static CSG triangles(int count) {
+		List<Polygon> polygons = new ArrayList<Polygon>();
+		Vector3d normal = new Vector3d(0, 0, 1);
+		TexCoord2f tex = new TexCoord2f();
+		for (int i = 0; i < count; i++) {
+			polygons.add(new Polygon(new Vertex(new Vector3d(i, 0, 0), normal, tex), new Vertex(new Vector3d(i + 0.5, 0, 0), normal, tex),
+					new Vertex(new Vector3d(i, 1, 0), normal, tex)));
+		}
+		return CSG.fromPolygons(polygons);
+	}
+
 	private void printVertices(Mesh m) {
 
 		VertexBuffer pb = m.getBuffer(Type.Position);